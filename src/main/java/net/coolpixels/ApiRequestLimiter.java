@@ -0,0 +1,181 @@
+package net.coolpixels;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+// Limits concurrent API requests with AIMD: the limit grows by one per round of successful
+// requests and is cut when requests time out, fail to connect, get a 429/5xx response or their
+// latency rises well above the fastest observed. Requests over the limit wait in a bounded
+// queue, where completions are always started before profile checks.
+public class ApiRequestLimiter {
+    public enum Priority {
+        COMPLETION,
+        PROFILE_CHECK
+    }
+
+    // One logical API request including its retries; returns the HTTP status, or 0 if nothing was sent
+    public interface ApiCall {
+        int call() throws Exception;
+    }
+
+    private static final int MIN_LIMIT = 1;
+    private static final double INITIAL_LIMIT = 4;
+    private static final double BACKOFF_RATIO = 0.7;
+    // Latency above this multiple of the baseline counts as congestion
+    private static final double LATENCY_TOLERANCE = 2.0;
+    // How fast the baseline follows slower responses, so it can recover if the API gets slower for good
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Weekly World API");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Request(Priority priority, ApiCall call, CompletableFuture<Integer> future) {
+    }
+
+    private static final Object lock = new Object();
+    private static final ArrayDeque<Request> completions = new ArrayDeque<>();
+    private static final ArrayDeque<Request> profileChecks = new ArrayDeque<>();
+    private static double limit = Math.min(INITIAL_LIMIT, ServerEnvironmentConfig.getApiMaxConcurrency());
+    private static int inFlight = 0;
+    private static double baselineNanos = 0;
+    private static long lastDecreaseNanos = 0;
+
+    // Completes with the HTTP status, or exceptionally with the call's exception or a
+    // RejectedExecutionException when the queue overflowed
+    public static CompletableFuture<Integer> submit(Priority priority, ApiCall call) {
+        Request request = new Request(priority, call, new CompletableFuture<>());
+        Request rejected = null;
+
+        synchronized (lock) {
+            if (inFlight < currentLimit() && completions.isEmpty() && profileChecks.isEmpty()) {
+                inFlight++;
+                start(request);
+                return request.future();
+            }
+
+            if (completions.size() + profileChecks.size() >= ServerEnvironmentConfig.getApiQueueSize()) {
+                rejected = evict(request);
+            }
+            if (rejected != request) {
+                (priority == Priority.COMPLETION ? completions : profileChecks).addLast(request);
+            }
+        }
+
+        if (rejected != null) {
+            rejected.future().completeExceptionally(new RejectedExecutionException("API request queue is full"));
+        }
+        return request.future();
+    }
+
+    // Picks the request to drop when the queue is full. A completion never loses its place to a
+    // profile check, since it cannot be recovered by the player rejoining.
+    private static Request evict(Request incoming) {
+        if (incoming.priority() == Priority.COMPLETION && !profileChecks.isEmpty()) {
+            return profileChecks.pollLast();
+        }
+        if (ServerEnvironmentConfig.getApiQueueOverflow().equals("drop_oldest")) {
+            ArrayDeque<Request> queue = incoming.priority() == Priority.COMPLETION ? completions : profileChecks;
+            if (!queue.isEmpty()) {
+                return queue.pollFirst();
+            }
+        }
+        return incoming;
+    }
+
+    private static void start(Request request) {
+        EXECUTOR.execute(() -> {
+            long start = System.nanoTime();
+            boolean overloaded = false;
+            boolean sent = true;
+            try {
+                int status = request.call().call();
+                sent = status != 0;
+                overloaded = status == 429 || status >= 500;
+                request.future().complete(status);
+            } catch (Exception e) {
+                overloaded = isOverload(e);
+                request.future().completeExceptionally(e);
+            } finally {
+                onFinished(System.nanoTime() - start, sent, overloaded);
+            }
+        });
+    }
+
+    private static boolean isOverload(Exception e) {
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof java.net.ConnectException || cause instanceof java.net.http.HttpTimeoutException)
+                return true;
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    private static void onFinished(long latencyNanos, boolean sent, boolean overloaded) {
+        synchronized (lock) {
+            inFlight--;
+            if (sent) {
+                adjustLimit(latencyNanos, overloaded);
+            }
+
+            // Start as many queued requests as the limit allows, completions first
+            while (inFlight < currentLimit()) {
+                Request next = completions.pollFirst();
+                if (next == null) {
+                    next = profileChecks.pollFirst();
+                }
+                if (next == null)
+                    break;
+                inFlight++;
+                start(next);
+            }
+        }
+    }
+
+    // A reload can lower api_max_concurrency, so the limit is clamped to it wherever it is used.
+    // Must hold the lock.
+    private static int currentLimit() {
+        limit = Math.min(limit, ServerEnvironmentConfig.getApiMaxConcurrency());
+        return (int) limit;
+    }
+
+    private static void adjustLimit(long latencyNanos, boolean overloaded) {
+        if (baselineNanos == 0 || latencyNanos < baselineNanos) {
+            baselineNanos = latencyNanos;
+        } else {
+            baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DRIFT;
+        }
+
+        long now = System.nanoTime();
+        if (overloaded || latencyNanos > baselineNanos * LATENCY_TOLERANCE) {
+            // Requests that were already in flight report the same congestion, so back off once per round trip
+            if (now - lastDecreaseNanos > latencyNanos) {
+                double previous = limit;
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = now;
+                WeeklyWorld.LOGGER.debug("API congestion, concurrency limit {} -> {}", (int) previous, (int) limit);
+            }
+        } else if (inFlight + 1 >= currentLimit()) {
+            // Only grow while the current limit is actually in use
+            limit = Math.min(ServerEnvironmentConfig.getApiMaxConcurrency(), limit + 1 / limit);
+        }
+    }
+
+    public static int getLimit() {
+        synchronized (lock) {
+            return currentLimit();
+        }
+    }
+
+    public static int getQueued() {
+        synchronized (lock) {
+            return completions.size() + profileChecks.size();
+        }
+    }
+}
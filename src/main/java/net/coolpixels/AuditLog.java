@@ -0,0 +1,273 @@
+package net.coolpixels;
+
+import com.google.gson.stream.JsonWriter;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+// Structured record of player events, written as gzip-compressed JSON lines to
+// logs/weekly-world/. The server thread only fills a record and offers it to a bounded queue;
+// formatting and compression happen on a background writer. Events matching an objective and
+// completions are always recorded, other events are sampled at audit_sample_rate. When the
+// queue is full, records are dropped and the number of dropped records is written instead.
+public class AuditLog {
+    private static final String LOG_DIR = "logs/weekly-world";
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final long MAX_FILE_BYTES = 64L * 1024 * 1024; // Uncompressed size per file
+    private static final int MAX_FILES = 30;
+
+    // Strings for the player and world are only built by the writer
+    private record Entry(long time, String kind, UUID player, String name, int world, String challenge, int week,
+            String type, String value, int amount, String outcome) {
+    }
+
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile Thread writerThread = null;
+    private static volatile boolean running = false;
+
+    // audit_sample_rate, copied when the config is applied so sampling never reads the config
+    private static volatile double sampleRate = 0;
+
+    // Applies audit_log and audit_sample_rate, at startup and after the config was reloaded
+    public static void update() {
+        sampleRate = ServerEnvironmentConfig.getAuditSampleRate();
+        if (ServerEnvironmentConfig.isAuditLogEnabled()) {
+            start();
+        } else {
+            stop();
+        }
+    }
+
+    public static void start() {
+        if (writerThread != null || !ServerEnvironmentConfig.isAuditLogEnabled())
+            return;
+        running = true;
+        Thread thread = new Thread(AuditLog::writeLoop, "Weekly World Audit");
+        thread.setDaemon(true);
+        thread.start();
+        writerThread = thread;
+    }
+
+    // Writes what is queued and stops the writer
+    public static void stop() {
+        Thread thread = writerThread;
+        if (thread == null)
+            return;
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    // An event that matched an objective, with what happened to it
+    public static void event(ServerPlayerEntity player, int world, String type, String value, int amount,
+            String outcome) {
+        offer(player, "event", world, null, ServerChallengeData.getWeek(), type, value, amount, outcome);
+    }
+
+    // An event that did not match any objective, recorded only for a sample of calls
+    public static void sampleEvent(ServerPlayerEntity player, String type, String value, int amount) {
+        if (writerThread == null)
+            return;
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate))
+            return;
+        offer(player, "event", WorldUUIDSync.getOrCreateWorldHandle(player.getWorld()), null,
+                ServerChallengeData.getWeek(), type, value, amount, "no_match");
+    }
+
+    // The challenge id is only recorded for additional challenges
+    public static void completion(ServerPlayerEntity player, int world, ChallengeDefinition challenge,
+            String outcome) {
+        offer(player, "completion", world, challenge.isPrimary() ? null : challenge.getId(), challenge.getWeek(),
+                null, null, 0, outcome);
+    }
+
+    private static void offer(ServerPlayerEntity player, String kind, int world, String challenge, int week,
+            String type, String value, int amount, String outcome) {
+        if (writerThread == null)
+            return;
+        Entry entry = new Entry(System.currentTimeMillis(), kind, player.getUuid(),
+                player.getGameProfile().getName(), world, challenge, week, type, value, amount, outcome);
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static void writeLoop() {
+        File dir = new File(WeeklyWorld.getGameDir().toFile(), LOG_DIR);
+        List<Entry> batch = new ArrayList<>(256);
+        LogFile file = null;
+        try {
+            while (running || !queue.isEmpty()) {
+                Entry first;
+                try {
+                    first = queue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // Stopping, write out whatever is left
+                    first = queue.poll();
+                }
+                if (first == null && dropped.get() == 0) {
+                    continue;
+                }
+
+                if (file == null || file.isFull()) {
+                    if (file != null) {
+                        file.close();
+                    }
+                    file = LogFile.open(dir);
+                }
+
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    for (Entry entry : batch) {
+                        file.write(entry);
+                    }
+                    batch.clear();
+                }
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    file.writeDropped(lost);
+                }
+
+                // Sync-flush so the file is readable up to here while the writer idles
+                file.flush();
+            }
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.error("Audit log writer failed, audit logging is disabled until restart", e);
+            running = false;
+            queue.clear();
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    WeeklyWorld.LOGGER.warn("Failed to close audit log", e);
+                }
+            }
+        }
+    }
+
+    // One compressed log file, rotated by day and size
+    private static final class LogFile {
+        private final String day;
+        private final CountingOutputStream counter;
+        private final Writer writer;
+
+        private LogFile(String day, File file) throws IOException {
+            this.day = day;
+            this.counter = new CountingOutputStream(
+                    new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16), 1 << 16, true));
+            this.writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        static LogFile open(File dir) throws IOException {
+            dir.mkdirs();
+            String day = today();
+            int index = 1;
+            File file;
+            while ((file = new File(dir, "audit-" + day + "-" + index + ".jsonl.gz")).exists()) {
+                index++;
+            }
+            deleteOldFiles(dir);
+            return new LogFile(day, file);
+        }
+
+        boolean isFull() {
+            return counter.count >= MAX_FILE_BYTES || !day.equals(today());
+        }
+
+        void write(Entry entry) throws IOException {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("time").value(entry.time());
+            json.name("kind").value(entry.kind());
+            json.name("player").value(entry.player().toString());
+            json.name("name").value(entry.name());
+            json.name("world").value(WorldUUIDSync.getWorldIdentifier(entry.world()));
+            if (entry.challenge() != null) {
+                json.name("challenge").value(entry.challenge());
+            }
+            json.name("week").value(entry.week());
+            if (entry.type() != null) {
+                json.name("type").value(entry.type());
+                json.name("value").value(entry.value());
+                json.name("amount").value(entry.amount());
+            }
+            json.name("outcome").value(entry.outcome());
+            json.endObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        void writeDropped(long count) throws IOException {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("time").value(System.currentTimeMillis());
+            json.name("kind").value("dropped");
+            json.name("count").value(count);
+            json.endObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        void flush() throws IOException {
+            writer.flush();
+        }
+
+        void close() throws IOException {
+            writer.close();
+        }
+
+        private static String today() {
+            return new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        }
+
+        private static void deleteOldFiles(File dir) {
+            File[] files = dir.listFiles((d, name) -> name.startsWith("audit-") && name.endsWith(".jsonl.gz"));
+            if (files == null || files.length < MAX_FILES)
+                return;
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i <= files.length - MAX_FILES; i++) {
+                if (!files[i].delete()) {
+                    WeeklyWorld.LOGGER.warn("Failed to delete old audit log {}", files[i]);
+                }
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package net.coolpixels;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Single background thread for file writes, so saves never block the server thread
+// and writes to the same file are never interleaved
+public class BackgroundTasks {
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Weekly World IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static CompletableFuture<Void> runIO(Runnable task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                WeeklyWorld.LOGGER.error("Background task failed", e);
+            }
+        }, IO_EXECUTOR);
+    }
+
+    // Waits for all queued tasks, used when the server stops
+    public static void awaitPending() {
+        try {
+            IO_EXECUTOR.submit(() -> {
+            }).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            WeeklyWorld.LOGGER.warn("Timed out waiting for background tasks to finish", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package net.coolpixels;
+
+import java.util.*;
+
+// Parsed form of weekly_world_objectives.json, or of one file in weekly_world_challenges/.
+// Objectives get a fixed ordinal, unique across all active challenges, so per-player state can be
+// kept in arrays. The primary (weekly) challenge has no id; objectives of other challenges store
+// their progress under keys prefixed with the challenge id and week, so each challenge and each
+// of its periods keeps its own progress. Events are matched through ChallengeSet.
+public class ChallengeDefinition {
+    public record Objective(int ordinal, String type, String content, int count, String key,
+            ChallengeDefinition challenge) {
+        // Count objectives track progress until count is reached; others complete on the first event
+        public boolean isCounted() {
+            return count > 1;
+        }
+    }
+
+    private final String id;
+    private final String name;
+    private final int week;
+    private final List<Objective> objectives;
+    private final List<Map<String, Object>> objectiveMaps;
+    private final List<Map<String, Object>> restrictions;
+    private final Map<String, Map<String, Objective>> objectivesByType;
+
+    public ChallengeDefinition(Map<String, Object> data) {
+        this(null, data, 0);
+    }
+
+    // id is null for the primary challenge; firstOrdinal is the number of objectives of the
+    // challenges before this one
+    @SuppressWarnings("unchecked")
+    public ChallengeDefinition(String id, Map<String, Object> data, int firstOrdinal) {
+        this.id = id;
+        Object weekValue = data.get("week");
+        week = weekValue instanceof Number number ? number.intValue() : 1; // Default to week 1 if not specified
+        name = data.get("name") instanceof String value ? value : id;
+        String keyPrefix = id != null ? id + "@" + week + ":" : "";
+
+        List<Map<String, Object>> tasks = data.get("tasks") instanceof List<?> list
+                ? (List<Map<String, Object>>) list
+                : Collections.emptyList();
+
+        List<Objective> parsed = new ArrayList<>(tasks.size());
+        Map<String, Map<String, Objective>> byType = new HashMap<>();
+        for (Map<String, Object> task : tasks) {
+            String type = (String) task.get("type");
+            String content = (String) task.get("content");
+            if (type == null || content == null) {
+                WeeklyWorld.LOGGER.warn("Skipping objective without type or content: {}", task);
+                continue;
+            }
+            int count = task.get("count") instanceof Number number ? Math.max(1, number.intValue()) : 1;
+
+            Objective objective = new Objective(firstOrdinal + parsed.size(), type, content, count,
+                    keyPrefix + ServerPlayerData.getObjectiveKey(type, content), this);
+            if (byType.computeIfAbsent(type, k -> new HashMap<>()).putIfAbsent(content, objective) != null) {
+                WeeklyWorld.LOGGER.warn("Ignoring duplicate objective {} {}", type, content);
+                continue;
+            }
+            parsed.add(objective);
+        }
+
+        objectives = List.copyOf(parsed);
+        objectiveMaps = List.copyOf(tasks);
+        objectivesByType = byType;
+
+        // Default restriction if none specified
+        restrictions = data.get("restrictions") instanceof List<?> list
+                ? (List<Map<String, Object>>) list
+                : List.of(Map.of("type", "hardcore", "content", "true"));
+    }
+
+    public boolean isPrimary() {
+        return id == null;
+    }
+
+    // Null for the primary challenge
+    public String getId() {
+        return id;
+    }
+
+    // The "name" from the file, or the id; null for the primary challenge without a name
+    public String getName() {
+        return name;
+    }
+
+    public int getWeek() {
+        return week;
+    }
+
+    public List<Objective> getObjectives() {
+        return objectives;
+    }
+
+    // Raw objective entries as they appear in the file
+    public List<Map<String, Object>> getObjectiveMaps() {
+        return objectiveMaps;
+    }
+
+    public List<Map<String, Object>> getRestrictions() {
+        return restrictions;
+    }
+
+    // Returns the objective for an event, or null if the event does not match any
+    public Objective findObjective(String type, String content) {
+        Map<String, Objective> byContent = objectivesByType.get(type);
+        return byContent != null ? byContent.get(content) : null;
+    }
+}
@@ -0,0 +1,322 @@
+package net.coolpixels;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.server.MinecraftServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Fetches the current and next challenge from the API when fetch_challenges is enabled, so weeks
+// change without an operator copying files. Requests carry the ETag of the last response and are
+// usually answered with 304 Not Modified. A changed current challenge is written to
+// weekly_world_objectives.json and activated. The next challenge is saved to
+// weekly_world_next_challenge.json, compiled with its patterns resolved on the fetch thread, and
+// swapped in on the server thread at its "starts_at" instant. The server keeps using both files
+// while the API is unreachable, also across restarts.
+public class ChallengeFetcher {
+    private static final String NEXT_FILE = "weekly_world_next_challenge.json";
+    // Pretty printed, as operators still read the files
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    // The next challenge: its objectives without starts_at, as written and as parsed, and the compiled set
+    private record Pending(JsonObject objectives, Map<String, Object> data, long startsAt, ChallengeSet compiled) {
+    }
+
+    // Only changed on the server thread
+    private static volatile ScheduledExecutorService executor = null;
+    private static volatile MinecraftServer server = null;
+    private static int intervalMinutes = 0;
+
+    // Only touched on the fetch thread
+    private static final Map<String, String> etags = new HashMap<>();
+    private static Pending pending = null;
+    private static ScheduledFuture<?> rollover = null;
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTED.register(ChallengeFetcher::update);
+        ServerLifecycleEvents.SERVER_STOPPING.register(s -> stop());
+    }
+
+    // Starts or stops fetching to match the config. Must run on the server thread.
+    public static void update(MinecraftServer server) {
+        boolean enabled = ServerEnvironmentConfig.isFetchChallenges();
+        if (enabled && !ServerEnvironmentConfig.isConfigured()) {
+            WeeklyWorld.LOGGER.warn("fetch_challenges needs api_base and server_secret, not fetching challenges");
+            enabled = false;
+        }
+
+        int interval = ServerEnvironmentConfig.getFetchIntervalMinutes();
+        if (enabled && (executor == null || interval != intervalMinutes)) {
+            stop();
+            start(server, interval);
+        } else if (!enabled && executor != null) {
+            stop();
+        }
+    }
+
+    private static void start(MinecraftServer server, int interval) {
+        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Weekly World Challenge Fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ChallengeFetcher.server = server;
+        executor = service;
+        intervalMinutes = interval;
+
+        service.execute(ChallengeFetcher::loadNextFile);
+        service.scheduleWithFixedDelay(ChallengeFetcher::poll, 0, interval, TimeUnit.MINUTES);
+        WeeklyWorld.LOGGER.info("Fetching challenges from the API every {} minute(s)", interval);
+    }
+
+    private static void stop() {
+        ScheduledExecutorService service = executor;
+        if (service == null)
+            return;
+        // Also cancels a scheduled rollover, which is read from the file again on the next start
+        service.shutdownNow();
+        executor = null;
+        server = null;
+    }
+
+    // Compiles the next challenge again, e.g. after the additional challenges or data packs changed
+    public static void recompilePending() {
+        ScheduledExecutorService service = executor;
+        if (service == null)
+            return;
+        service.execute(() -> {
+            if (pending == null)
+                return;
+            try {
+                pending = new Pending(pending.objectives(), pending.data(), pending.startsAt(), compile(pending.data()));
+            } catch (RuntimeException e) {
+                WeeklyWorld.LOGGER.error("Failed to compile the next challenge", e);
+            }
+        });
+    }
+
+    private static void poll() {
+        try {
+            fetchCurrent();
+            fetchNext();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            // Exceptions would cancel the schedule, so every failure ends here
+            WeeklyWorld.LOGGER.warn("Failed to fetch challenges from the API, keeping the local files: {}",
+                    e.toString());
+        }
+
+        // Timers drift over days and across suspends, so the delay is recomputed on every check
+        if (pending != null) {
+            schedule(pending);
+        }
+    }
+
+    private static void fetchCurrent() throws IOException, InterruptedException {
+        ServerApiClient.ChallengeResponse response = ServerApiClient.fetchChallenge("current", etags.get("current"));
+        if (response.status() == 304)
+            return;
+        if (response.status() != 200) {
+            WeeklyWorld.LOGGER.warn("API returned HTTP {} for the current challenge", response.status());
+            return;
+        }
+
+        JsonObject json = parse(response.body());
+        Map<String, Object> data = GSON.fromJson(json, MAP_TYPE);
+        if (!data.equals(readJson(ServerChallengeData.getObjectivesFile()))) {
+            ChallengeSet compiled = compile(data);
+            writeJson(ServerChallengeData.getObjectivesFile(), json);
+            WeeklyWorld.LOGGER.info("Fetched a changed week {} challenge", compiled.getPrimary().getWeek());
+            activate(compiled);
+        }
+        // Only remembered once handled, so a failed write is retried on the next check
+        etags.put("current", response.etag());
+    }
+
+    private static void fetchNext() throws IOException, InterruptedException {
+        ServerApiClient.ChallengeResponse response = ServerApiClient.fetchChallenge("next", etags.get("next"));
+        switch (response.status()) {
+            case 304 -> {
+            }
+            case 200 -> {
+                JsonObject json = parse(response.body());
+                JsonObject objectives = objectivesOf(json);
+                Map<String, Object> data = GSON.fromJson(objectives, MAP_TYPE);
+                long startsAt = startsAt(json);
+                if (pending == null || !pending.data().equals(data) || pending.startsAt() != startsAt) {
+                    Pending next = new Pending(objectives, data, startsAt, compile(data));
+                    writeJson(getNextFile(), json);
+                    pending = next;
+                    WeeklyWorld.LOGGER.info("Next challenge is week {}, starting at {}",
+                            next.compiled().getPrimary().getWeek(), Instant.ofEpochMilli(startsAt));
+                }
+                etags.put("next", response.etag());
+            }
+            case 204, 404 -> {
+                // No next challenge announced (anymore)
+                if (pending != null) {
+                    WeeklyWorld.LOGGER.info("The API no longer announces a next challenge, cancelling the rollover");
+                    cancelPending();
+                }
+                etags.remove("next");
+            }
+            default -> WeeklyWorld.LOGGER.warn("API returned HTTP {} for the next challenge", response.status());
+        }
+    }
+
+    // Picks up a next challenge fetched before the restart, so the rollover does not depend on the API
+    private static void loadNextFile() {
+        pending = null;
+        File file = getNextFile();
+        if (!file.exists())
+            return;
+        try {
+            JsonObject json = parse(Files.readString(file.toPath(), StandardCharsets.UTF_8));
+            JsonObject objectives = objectivesOf(json);
+            Map<String, Object> data = GSON.fromJson(objectives, MAP_TYPE);
+            pending = new Pending(objectives, data, startsAt(json), compile(data));
+            WeeklyWorld.LOGGER.info("Loaded the next challenge from {}, starting at {}", file.getName(),
+                    Instant.ofEpochMilli(pending.startsAt()));
+            schedule(pending);
+        } catch (IOException | RuntimeException e) {
+            WeeklyWorld.LOGGER.error("Failed to load {}", file.getName(), e);
+        }
+    }
+
+    private static void schedule(Pending next) {
+        ScheduledExecutorService service = executor;
+        if (service == null)
+            return;
+        if (rollover != null) {
+            rollover.cancel(false);
+        }
+        long delay = Math.max(0, next.startsAt() - System.currentTimeMillis());
+        rollover = service.schedule(ChallengeFetcher::rollOver, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs on the fetch thread at the start of the next challenge. Only the swap itself is left for the server thread.
+    private static void rollOver() {
+        Pending next = pending;
+        if (next == null)
+            return;
+        if (System.currentTimeMillis() < next.startsAt()) {
+            // Woke up early after a clock change
+            schedule(next);
+            return;
+        }
+
+        cancelPending();
+        if (next.data().equals(readJson(ServerChallengeData.getObjectivesFile()))) {
+            // Already fetched as the current challenge
+            return;
+        }
+        try {
+            writeJson(ServerChallengeData.getObjectivesFile(), next.objectives());
+        } catch (IOException e) {
+            // Still activated; the objectives file catches up on the next fetch of the current challenge
+            WeeklyWorld.LOGGER.error("Failed to write the week {} challenge to the objectives file",
+                    next.compiled().getPrimary().getWeek(), e);
+        }
+        WeeklyWorld.LOGGER.info("Week {} challenge starts now", next.compiled().getPrimary().getWeek());
+        activate(next.compiled());
+    }
+
+    private static void cancelPending() {
+        pending = null;
+        if (rollover != null) {
+            rollover.cancel(false);
+            rollover = null;
+        }
+        try {
+            Files.deleteIfExists(getNextFile().toPath());
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.warn("Failed to delete {}", NEXT_FILE, e);
+        }
+    }
+
+    private static void activate(ChallengeSet compiled) {
+        MinecraftServer current = server;
+        if (current != null) {
+            current.execute(() -> ChallengeReloader.activate(current, compiled));
+        }
+    }
+
+    // Parsing, index building and pattern resolution all happen here, off the server thread
+    private static ChallengeSet compile(Map<String, Object> data) {
+        ChallengeSet compiled = ServerChallengeData.compileChallenges(data);
+        compiled.prepare();
+        return compiled;
+    }
+
+    // A challenge from the API has the format of weekly_world_objectives.json, the next one also a "starts_at"
+    private static JsonObject parse(String body) {
+        JsonObject json = GSON.fromJson(body, JsonObject.class);
+        if (json == null)
+            throw new JsonParseException("Empty challenge");
+        if (!json.has("week") || !json.get("week").isJsonPrimitive() || !json.get("week").getAsJsonPrimitive().isNumber())
+            throw new JsonParseException("Challenge without a week number");
+        return json;
+    }
+
+    private static JsonObject objectivesOf(JsonObject next) {
+        JsonObject objectives = next.deepCopy();
+        objectives.remove("starts_at");
+        return objectives;
+    }
+
+    // starts_at is an ISO-8601 instant ("2026-10-26T00:00:00Z") or epoch milliseconds
+    private static long startsAt(JsonObject next) {
+        JsonElement value = next.get("starts_at");
+        if (value == null || !value.isJsonPrimitive())
+            throw new JsonParseException("Next challenge without starts_at");
+        return value.getAsJsonPrimitive().isNumber()
+                ? value.getAsLong()
+                : Instant.parse(value.getAsString()).toEpochMilli();
+    }
+
+    // Returns null if the file is missing or invalid
+    private static Map<String, Object> readJson(File file) {
+        try {
+            return GSON.fromJson(Files.readString(file.toPath(), StandardCharsets.UTF_8), MAP_TYPE);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Written to a temporary file first, so the server never reads a half-written challenge. The
+    // content is activated directly, so the config file watcher is told to skip it.
+    private static void writeJson(File file, JsonObject json) throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        String content = GSON.toJson(json);
+        Files.createDirectories(target.getParent());
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        ChallengeReloader.markSelfWritten(target, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static File getNextFile() {
+        return new File(WeeklyWorld.getConfigDir().toFile(), NEXT_FILE);
+    }
+}
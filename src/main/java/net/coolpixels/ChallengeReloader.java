@@ -0,0 +1,251 @@
+package net.coolpixels;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Reloads weekly_world_objectives.json, the additional challenges in weekly_world_challenges/ and
+// weekly_world_server_env.json at runtime, from /weeklyworld reload or a file watcher. The parsed config is swapped in at once on the server
+// thread; online players are then re-evaluated a few per tick so a full server does not hitch.
+public class ChallengeReloader {
+    private static final int PLAYERS_PER_TICK = 4;
+    // Editors often write a file in several steps, so wait for changes to settle before reloading
+    private static final long WATCH_DEBOUNCE_MS = 500;
+
+    private static final ArrayDeque<UUID> pendingPlayers = new ArrayDeque<>();
+    private static Set<UUID> finishedBeforeReload = Set.of();
+
+    private static WatchService watchService = null;
+
+    // What a batch of file changes touched, see changedFiles
+    private static final int CHANGED_CHALLENGES = 1;
+    private static final int CHANGED_CONFIG = 2;
+
+    // Last content the mod itself wrote to a watched file, e.g. a fetched challenge, so the watcher
+    // does not reload what was already activated
+    private static final Map<Path, String> selfWritten = new java.util.concurrent.ConcurrentHashMap<>();
+
+    public static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(ChallengeReloader::reevaluatePending);
+        ServerLifecycleEvents.SERVER_STARTED.register(ChallengeReloader::updateWatcher);
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            stopWatcher();
+            pendingPlayers.clear();
+        });
+    }
+
+    // Must run on the server thread. Returns a summary for the operator.
+    public static String reload(MinecraftServer server) {
+        int previousWeek = ServerChallengeData.getWeek();
+        Set<UUID> finishedBefore = ProgressIndex.getFinishedPlayers();
+
+        boolean configReloaded = ServerEnvironmentConfig.reloadConfig();
+        boolean objectivesReloaded = ServerChallengeData.reloadDefinition();
+        applyConfig(server);
+
+        if (objectivesReloaded) {
+            challengesChanged(server, previousWeek, finishedBefore);
+            // The next challenge was compiled with the additional challenges as they were
+            ChallengeFetcher.recompilePending();
+        }
+
+        String summary = String.format("Objectives %s, server config %s",
+                objectivesReloaded
+                        ? String.format("reloaded (week %d, %d objectives, %d additional challenges)",
+                                ServerChallengeData.getWeek(),
+                                ServerChallengeData.getDefinition().getObjectives().size(),
+                                ServerChallengeData.getChallenges().getChallenges().size() - 1)
+                        : "unchanged (file missing or invalid)",
+                configReloaded ? "reloaded" : "unchanged (file missing or invalid)");
+        WeeklyWorld.LOGGER.info("Reload: {}", summary);
+        return summary;
+    }
+
+    // Must run on the server thread. Re-reads only weekly_world_server_env.json, for watched changes
+    // to it; the challenges stay as they are, so players are not re-evaluated or notified.
+    public static void reloadConfig(MinecraftServer server) {
+        boolean configReloaded = ServerEnvironmentConfig.reloadConfig();
+        if (configReloaded) {
+            applyConfig(server);
+        }
+        WeeklyWorld.LOGGER.info("Reload: server config {}",
+                configReloaded ? "reloaded" : "unchanged (file missing or invalid)");
+    }
+
+    // Starts, stops or reconfigures everything that depends on the server config
+    private static void applyConfig(MinecraftServer server) {
+        updateWatcher(server);
+        ChallengeFetcher.update(server);
+        ProgressFeed.update(server);
+        AuditLog.update();
+    }
+
+    // Must run on the server thread. Makes a challenge set compiled ahead of time active, like a
+    // reload of the objectives file but without reading or parsing anything.
+    public static void activate(MinecraftServer server, ChallengeSet compiled) {
+        int previousWeek = ServerChallengeData.getWeek();
+        Set<UUID> finishedBefore = ProgressIndex.getFinishedPlayers();
+        ServerChallengeData.setChallenges(compiled);
+        challengesChanged(server, previousWeek, finishedBefore);
+        WeeklyWorld.LOGGER.info("Activated week {} challenge ({} objectives)", ServerChallengeData.getWeek(),
+                ServerChallengeData.getDefinition().getObjectives().size());
+    }
+
+    private static void challengesChanged(MinecraftServer server, int previousWeek, Set<UUID> finishedBefore) {
+        ServerPlayerData.checkWeekRollover();
+        ServerPlayerData.rebuildProgressIndex();
+
+        // Progress of a new week starts empty, so nobody had finished it before
+        if (ServerChallengeData.getWeek() != previousWeek) {
+            finishedBefore = Set.of();
+        }
+        submitOfflineCompletions(server, finishedBefore);
+
+        finishedBeforeReload = finishedBefore;
+        pendingPlayers.clear();
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            pendingPlayers.add(player.getUuid());
+        }
+        ProgressFeed.challengesChanged();
+    }
+
+    // Players that finished only because objectives were removed never trigger a completion event.
+    // Online players are handled during re-evaluation, offline players are submitted here. Only the
+    // primary challenge is indexed, so additional challenges are completed when the player is next online.
+    private static void submitOfflineCompletions(MinecraftServer server, Set<UUID> finishedBefore) {
+        if (ServerChallengeData.getDefinition().getObjectives().isEmpty())
+            return;
+
+        for (UUID playerUuid : ProgressIndex.getFinishedPlayers()) {
+            if (finishedBefore.contains(playerUuid) || server.getPlayerManager().getPlayer(playerUuid) != null)
+                continue;
+            WeeklyWorld.LOGGER.info("Player {} completed all objectives after the challenge was reloaded", playerUuid);
+            ServerApiClient.sendCompletionAsync(playerUuid.toString(), ServerChallengeData.getWeek());
+        }
+    }
+
+    private static void reevaluatePending(MinecraftServer server) {
+        for (int i = 0; i < PLAYERS_PER_TICK && !pendingPlayers.isEmpty(); i++) {
+            UUID uuid = pendingPlayers.poll();
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(uuid);
+            if (player != null) {
+                long start = TickProfiler.start();
+                try {
+                    ServerEventHandler.reevaluatePlayer(player,
+                            finishedBeforeReload.contains(player.getUuid()));
+                } finally {
+                    TickProfiler.end(TickProfiler.Section.RELOAD, start);
+                }
+            }
+        }
+    }
+
+    private static void updateWatcher(MinecraftServer server) {
+        boolean enabled = ServerEnvironmentConfig.isWatchConfigFiles();
+        if (enabled && watchService == null) {
+            startWatcher(server);
+        } else if (!enabled && watchService != null) {
+            stopWatcher();
+        }
+    }
+
+    private static void startWatcher(MinecraftServer server) {
+        Path configDir = ServerEnvironmentConfig.getConfigPath().getParent();
+        Path challengesDir = ServerChallengeData.getChallengesDir().toPath();
+        Set<Path> watchedFiles = Set.of(ServerEnvironmentConfig.getConfigPath().getFileName(),
+                ServerChallengeData.getObjectivesFile().toPath().getFileName());
+
+        WatchService service;
+        try {
+            service = configDir.getFileSystem().newWatchService();
+            configDir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            // Any challenge file may be added, changed or removed
+            Files.createDirectories(challengesDir);
+            challengesDir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.error("Failed to watch config files for changes", e);
+            return;
+        }
+        watchService = service;
+
+        Thread thread = new Thread(() -> watch(server, service, watchedFiles), "Weekly World Config Watcher");
+        thread.setDaemon(true);
+        thread.start();
+        WeeklyWorld.LOGGER.info("Watching config files for changes");
+    }
+
+    private static void watch(MinecraftServer server, WatchService service, Set<Path> watchedFiles) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                int changed = changedFiles(key, watchedFiles);
+
+                // Collect the rest of a burst of writes into one reload
+                WatchKey next;
+                while ((next = service.poll(WATCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= changedFiles(next, watchedFiles);
+                }
+
+                // A full reload also covers the server config
+                if ((changed & CHANGED_CHALLENGES) != 0) {
+                    server.execute(() -> reload(server));
+                } else if ((changed & CHANGED_CONFIG) != 0) {
+                    server.execute(() -> reloadConfig(server));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher stopped
+        }
+    }
+
+    // Returns CHANGED_CHALLENGES and/or CHANGED_CONFIG for the watched files in the key's events
+    private static int changedFiles(WatchKey key, Set<Path> watchedFiles) {
+        Path dir = (Path) key.watchable();
+        boolean inChallengesDir = dir.equals(ServerChallengeData.getChallengesDir().toPath());
+        Path configFile = ServerEnvironmentConfig.getConfigPath().getFileName();
+        int changed = 0;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (!(event.context() instanceof Path path) || isSelfWritten(dir.resolve(path)))
+                continue;
+            if (inChallengesDir ? path.toString().endsWith(".json") : watchedFiles.contains(path)) {
+                changed |= !inChallengesDir && path.equals(configFile) ? CHANGED_CONFIG : CHANGED_CHALLENGES;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    // Called before the mod replaces a watched file with content it has already applied
+    public static void markSelfWritten(Path file, String content) {
+        selfWritten.put(file.toAbsolutePath(), content);
+    }
+
+    private static boolean isSelfWritten(Path file) {
+        String written = selfWritten.get(file.toAbsolutePath());
+        if (written == null)
+            return false;
+        try {
+            return written.equals(Files.readString(file));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void stopWatcher() {
+        if (watchService == null)
+            return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.warn("Failed to stop config file watcher", e);
+        }
+        watchService = null;
+    }
+}
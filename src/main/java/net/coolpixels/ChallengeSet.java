@@ -0,0 +1,130 @@
+package net.coolpixels;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+
+// All active challenges: the primary weekly challenge and any additional ones. Their objectives
+// are merged into one type -> content index, so an event costs a single lookup however many
+// challenges are running; the lookup returns every objective the event matches. Tag and wildcard
+// objectives are added to the index under every id they match, see ObjectivePatterns.
+public class ChallengeSet {
+    private static final ChallengeDefinition.Objective[] NO_OBJECTIVES = new ChallengeDefinition.Objective[0];
+
+    // Index with patterns expanded, and the raw ids of all objective items for the inventory filter
+    private record Resolved(Map<String, Map<String, ChallengeDefinition.Objective[]>> objectivesByType,
+            BitSet objectiveItems) {
+    }
+
+    private final ChallengeDefinition primary;
+    private final List<ChallengeDefinition> challenges;
+    private final List<ChallengeDefinition.Objective> objectives;
+    private final Map<String, Map<String, ChallengeDefinition.Objective[]>> objectivesByType;
+
+    // Resolved by prepare() once the server is there, since registries, tags and advancements are
+    // not ready when the files are first parsed; sets built before that resolve on first use
+    private volatile Resolved resolved = null;
+
+    // Ordinals must continue from one challenge to the next, see ChallengeDefinition
+    public ChallengeSet(ChallengeDefinition primary, List<ChallengeDefinition> additional) {
+        this.primary = primary;
+        List<ChallengeDefinition> all = new ArrayList<>(additional.size() + 1);
+        all.add(primary);
+        all.addAll(additional);
+        challenges = List.copyOf(all);
+
+        List<ChallengeDefinition.Objective> merged = new ArrayList<>();
+        Map<String, Map<String, ChallengeDefinition.Objective[]>> byType = new HashMap<>();
+        for (ChallengeDefinition challenge : challenges) {
+            for (ChallengeDefinition.Objective objective : challenge.getObjectives()) {
+                if (objective.ordinal() != merged.size())
+                    throw new IllegalArgumentException("Objective ordinals of " + challenge.getId() + " do not continue");
+                merged.add(objective);
+
+                if (!ObjectivePatterns.isPattern(objective.content())) {
+                    addToIndex(byType, objective.content(), objective);
+                }
+            }
+        }
+        objectives = List.copyOf(merged);
+        objectivesByType = byType;
+    }
+
+    private static void addToIndex(Map<String, Map<String, ChallengeDefinition.Objective[]>> byType, String content,
+            ChallengeDefinition.Objective objective) {
+        Map<String, ChallengeDefinition.Objective[]> byContent = byType.computeIfAbsent(objective.type(),
+                k -> new HashMap<>());
+        ChallengeDefinition.Objective[] existing = byContent.getOrDefault(content, NO_OBJECTIVES);
+        for (ChallengeDefinition.Objective other : existing) {
+            if (other == objective)
+                return;
+        }
+        ChallengeDefinition.Objective[] extended = Arrays.copyOf(existing, existing.length + 1);
+        extended[existing.length] = objective;
+        byContent.put(content, extended);
+    }
+
+    public ChallengeDefinition getPrimary() {
+        return primary;
+    }
+
+    // Primary challenge first
+    public List<ChallengeDefinition> getChallenges() {
+        return challenges;
+    }
+
+    // Objectives of all challenges, indexed by ordinal
+    public List<ChallengeDefinition.Objective> getObjectives() {
+        return objectives;
+    }
+
+    // Returns the objectives an event matches, or null if it matches none. The array must not be modified.
+    public ChallengeDefinition.Objective[] findObjectives(String type, String content) {
+        Map<String, ChallengeDefinition.Objective[]> byContent = resolve().objectivesByType().get(type);
+        return byContent != null ? byContent.get(content) : null;
+    }
+
+    // Cheap filter for inventory changes, so only objective items reach the event lookup
+    public boolean isObjectiveItem(Item item) {
+        return resolve().objectiveItems().get(Registries.ITEM.getRawId(item));
+    }
+
+    // Called when data packs were reloaded. Events keep using the previous resolution until the new
+    // one is in place.
+    public void refreshPatterns() {
+        resolved = compute();
+    }
+
+    // Resolves patterns now rather than on first use
+    public void prepare() {
+        resolve();
+    }
+
+    private Resolved resolve() {
+        Resolved current = resolved;
+        if (current != null)
+            return current;
+        current = compute();
+        resolved = current;
+        return current;
+    }
+
+    private Resolved compute() {
+        // Copy the exact index so the expanded entries never leak into it
+        Map<String, Map<String, ChallengeDefinition.Objective[]>> byType = new HashMap<>();
+        objectivesByType.forEach((type, byContent) -> byType.put(type, new HashMap<>(byContent)));
+        BitSet items = new BitSet();
+        for (ChallengeDefinition.Objective objective : objectives) {
+            if (objective.type().equals("item")) {
+                items.or(ObjectivePatterns.itemIds(objective.content()));
+            }
+            if (ObjectivePatterns.isPattern(objective.content())) {
+                for (String id : ObjectivePatterns.expand(objective.type(), objective.content())) {
+                    addToIndex(byType, id, objective);
+                }
+            }
+        }
+        return new Resolved(byType, items);
+    }
+}
@@ -0,0 +1,374 @@
+package net.coolpixels;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+
+// Offline audit of recorded completions, run outside the server:
+//
+//   java -cp weekly-world.jar:gson.jar net.coolpixels.CompletionAudit --objectives <file>
+//       [--submissions <file>] [--output <file>] <player data or archive files...>
+//
+// Player data files (weekly_world_player_data.json, archive week-N.json.gz) are streamed and
+// only data of the objectives file's week is used. "All objectives complete" is recomputed per
+// player and world in parallel, and compared with the submitted completions: one JSON payload
+// per line or a JSON array ({"playerUUID": ..., "week": ...}), or one player UUID per line.
+//
+// Only Gson and the JDK are used here, no Minecraft or Fabric classes.
+public class CompletionAudit {
+    private static final int SPLIT_THRESHOLD = 4096;
+
+    // Completed objectives of one player in one world as a bitmask over the week's objectives
+    private record Entry(String player, String world, long[] mask, String[] unknownKeys) {
+    }
+
+    private record Objectives(int week, Map<String, Integer> keyIndex, long[] required) {
+    }
+
+    private record Result(Map<String, Set<String>> finishedWorlds, List<Entry> unknown, long records) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File objectivesFile = null;
+        File submissionsFile = null;
+        File outputFile = null;
+        List<File> dataFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--objectives" -> objectivesFile = new File(args[++i]);
+                case "--submissions" -> submissionsFile = new File(args[++i]);
+                case "--output" -> outputFile = new File(args[++i]);
+                default -> dataFiles.add(new File(args[i]));
+            }
+        }
+        if (objectivesFile == null || dataFiles.isEmpty()) {
+            System.err.println("Usage: CompletionAudit --objectives <file> [--submissions <file>] "
+                    + "[--output <file>] <player data or archive files...>");
+            System.exit(2);
+        }
+
+        long started = System.nanoTime();
+        Objectives objectives = readObjectives(objectivesFile);
+
+        // Each file is parsed on its own fork-join task
+        List<Entry> entries = Collections.synchronizedList(new ArrayList<>());
+        List<String> notes = Collections.synchronizedList(new ArrayList<>());
+        dataFiles.parallelStream().forEach(file -> {
+            try {
+                List<Entry> fileEntries = new ArrayList<>();
+                int week = readPlayerData(file, objectives, fileEntries);
+                if (week == objectives.week() || week == 0) {
+                    entries.addAll(fileEntries);
+                    notes.add(String.format("%s: week %d, %d records", file, week, fileEntries.size()));
+                } else {
+                    notes.add(String.format("%s: week %d, skipped", file, week));
+                }
+            } catch (IOException | JsonParseException e) {
+                notes.add(String.format("%s: unreadable (%s)", file, e.getMessage()));
+            }
+        });
+
+        Entry[] all = entries.toArray(new Entry[0]);
+        Result result = ForkJoinPool.commonPool().invoke(new Evaluate(all, 0, all.length, objectives.required()));
+
+        Set<String> submitted = submissionsFile != null ? readSubmissions(submissionsFile, objectives.week()) : null;
+
+        try (PrintWriter out = outputFile != null
+                ? new PrintWriter(new BufferedWriter(new FileWriter(outputFile)))
+                : new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true)) {
+            writeReport(out, objectives, notes, result, submitted, System.nanoTime() - started);
+        }
+    }
+
+    private static Objectives readObjectives(File file) throws IOException {
+        int week = 1; // Same default as the server
+        List<String> keys = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(open(file))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("week")) {
+                    week = reader.nextInt();
+                } else if (name.equals("tasks")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String type = null;
+                        String content = null;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String field = reader.nextName();
+                            if (field.equals("type")) {
+                                type = reader.nextString();
+                            } else if (field.equals("content")) {
+                                content = reader.nextString();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        // Same key format as ServerPlayerData
+                        String key = type + "|" + content;
+                        if (type != null && content != null && !keys.contains(key)) {
+                            keys.add(key);
+                        }
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        Map<String, Integer> keyIndex = new HashMap<>();
+        long[] required = new long[Math.max(1, (keys.size() + 63) >>> 6)];
+        for (int i = 0; i < keys.size(); i++) {
+            keyIndex.put(keys.get(i), i);
+            required[i >>> 6] |= 1L << i;
+        }
+        return new Objectives(week, keyIndex, required);
+    }
+
+    // Streams the "objectives" section into entries and returns the week of the file (0 if unknown)
+    private static int readPlayerData(File file, Objectives objectives, List<Entry> out) throws IOException {
+        int week = 0;
+        try (JsonReader reader = new JsonReader(open(file))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("week")) {
+                    week = reader.nextInt();
+                } else if (name.equals("objectives") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readCompletions(reader, objectives, out);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return week;
+    }
+
+    private static void readCompletions(JsonReader reader, Objectives objectives, List<Entry> out)
+            throws IOException {
+        List<String> unknown = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String player = reader.nextName();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String world = reader.nextName();
+                long[] mask = new long[objectives.required().length];
+                unknown.clear();
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String key = reader.nextString();
+                    Integer index = objectives.keyIndex().get(key);
+                    if (index != null) {
+                        mask[index >>> 6] |= 1L << index;
+                    } else if (key.indexOf('@') < 0) {
+                        // Keys of additional challenges (<id>@<week>:...) are not part of the audit
+                        unknown.add(key);
+                    }
+                }
+                reader.endArray();
+
+                out.add(new Entry(player, world, mask, unknown.isEmpty() ? null : unknown.toArray(new String[0])));
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+    }
+
+    private static Set<String> readSubmissions(File file, int week) throws IOException {
+        Set<String> players = new HashSet<>();
+        try (BufferedReader lines = new BufferedReader(open(file))) {
+            lines.mark(1 << 16);
+            int first;
+            do {
+                first = lines.read();
+            } while (first != -1 && Character.isWhitespace(first));
+            lines.reset();
+
+            if (first == '[') {
+                JsonReader reader = new JsonReader(lines);
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readSubmission(reader, week, players);
+                }
+                reader.endArray();
+                return players;
+            }
+
+            String line;
+            while ((line = lines.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith("{")) {
+                    readSubmission(new JsonReader(new StringReader(line)), week, players);
+                } else if (!line.isEmpty()) {
+                    players.add(line);
+                }
+            }
+        }
+        return players;
+    }
+
+    private static void readSubmission(JsonReader reader, int week, Set<String> players) throws IOException {
+        String player = null;
+        int submittedWeek = week;
+        String challenge = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("playerUUID")) {
+                player = reader.nextString();
+            } else if (name.equals("week")) {
+                submittedWeek = reader.nextInt();
+            } else if (name.equals("challenge") && reader.peek() == JsonToken.STRING) {
+                challenge = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        // Submissions for additional challenges carry their id and are not audited
+        if (player != null && challenge == null && submittedWeek == week) {
+            players.add(player);
+        }
+    }
+
+    private static Reader open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    // Splits the entries in halves until they are small enough, then merges the partial results
+    private static class Evaluate extends RecursiveTask<Result> {
+        private final Entry[] entries;
+        private final int from;
+        private final int to;
+        private final long[] required;
+
+        Evaluate(Entry[] entries, int from, int to, long[] required) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.required = required;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Evaluate left = new Evaluate(entries, from, middle, required);
+                left.fork();
+                Result right = new Evaluate(entries, middle, to, required).compute();
+                return merge(left.join(), right);
+            }
+
+            Map<String, Set<String>> finished = new HashMap<>();
+            List<Entry> unknown = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                Entry entry = entries[i];
+                if (isComplete(entry.mask())) {
+                    finished.computeIfAbsent(entry.player(), k -> new TreeSet<>()).add(entry.world());
+                }
+                if (entry.unknownKeys() != null) {
+                    unknown.add(entry);
+                }
+            }
+            return new Result(finished, unknown, to - from);
+        }
+
+        private boolean isComplete(long[] mask) {
+            for (int word = 0; word < required.length; word++) {
+                if ((mask[word] & required[word]) != required[word])
+                    return false;
+            }
+            return true;
+        }
+
+        private static Result merge(Result a, Result b) {
+            Map<String, Set<String>> finished = a.finishedWorlds();
+            for (Map.Entry<String, Set<String>> player : b.finishedWorlds().entrySet()) {
+                finished.merge(player.getKey(), player.getValue(), (x, y) -> {
+                    x.addAll(y);
+                    return x;
+                });
+            }
+            List<Entry> unknown = a.unknown();
+            unknown.addAll(b.unknown());
+            return new Result(finished, unknown, a.records() + b.records());
+        }
+    }
+
+    private static void writeReport(PrintWriter out, Objectives objectives, List<String> notes, Result result,
+            Set<String> submitted, long elapsedNanos) {
+        out.printf("Completion audit for week %d (%d objectives)%n", objectives.week(),
+                objectives.keyIndex().size());
+        notes.stream().sorted().forEach(note -> out.println("  " + note));
+        out.printf("%d player/world records checked in %.2f s%n%n", result.records(), elapsedNanos / 1e9);
+
+        TreeMap<String, Set<String>> finished = new TreeMap<>(result.finishedWorlds());
+        out.printf("Players with all objectives complete: %d%n", finished.size());
+
+        if (!result.unknown().isEmpty()) {
+            out.printf("%nRecords with objectives not in this week's challenge: %d%n", result.unknown().size());
+            result.unknown().stream()
+                    .sorted(Comparator.comparing(Entry::player).thenComparing(Entry::world))
+                    .forEach(entry -> out.printf("  %s %s: %s%n", entry.player(), entry.world(),
+                            String.join(", ", entry.unknownKeys())));
+        }
+
+        Set<String> invalid = new TreeSet<>();
+        for (String player : finished.keySet()) {
+            if (!isUuid(player)) {
+                invalid.add(player);
+            }
+        }
+        if (!invalid.isEmpty()) {
+            out.printf("%nFinished players with an invalid UUID: %d%n", invalid.size());
+            invalid.forEach(player -> out.println("  " + player));
+        }
+
+        if (submitted == null) {
+            out.println();
+            finished.forEach((player, worlds) -> out.printf("  %s (%s)%n", player, String.join(", ", worlds)));
+            return;
+        }
+
+        // Diff against the submissions: + finished but never submitted, - submitted but not finished
+        Set<String> missing = new TreeSet<>(finished.keySet());
+        missing.removeAll(submitted);
+        Set<String> unsupported = new TreeSet<>(submitted);
+        unsupported.removeAll(finished.keySet());
+
+        out.printf("%nSubmitted completions: %d, missing: %d, unsupported: %d%n", submitted.size(), missing.size(),
+                unsupported.size());
+        for (String player : missing) {
+            out.printf("+ %s (%s)%n", player, String.join(", ", finished.get(player)));
+        }
+        for (String player : unsupported) {
+            out.printf("- %s%n", player);
+        }
+    }
+
+    private static boolean isUuid(String value) {
+        try {
+            return UUID.fromString(value).toString().equals(value);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package net.coolpixels;
+
+import java.util.UUID;
+
+// The player an event belongs to, and what happens around the progress update. Online players are
+// handled with messages, packets, the audit log and API submissions; EventReplay only counts.
+public interface EventContext {
+    UUID playerUuid();
+
+    int world();
+
+    // Whether permissions and the challenge's restrictions allow completing its objectives
+    boolean canComplete(ChallengeDefinition challenge);
+
+    // Tells commands apart from unmet restrictions when an event is blocked
+    boolean isOperator();
+
+    // outcome is completed, progress, already_completed, blocked_commands or blocked_restrictions
+    void onOutcome(ChallengeDefinition.Objective objective, String type, String value, int amount, String outcome);
+
+    // A count objective's progress changed
+    void onProgress(ChallengeDefinition.Objective objective);
+
+    void onObjectiveCompleted(ChallengeDefinition.Objective objective);
+
+    void onChallengeCompleted(ChallengeDefinition challenge);
+}
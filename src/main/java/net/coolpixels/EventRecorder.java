@@ -0,0 +1,228 @@
+package net.coolpixels;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+// Opt-in recording of the events reaching ServerEventHandler, to replay real traffic with
+// EventReplay. Started and stopped with /weeklyworld record. Events are encoded on the server
+// thread into a buffer, with strings and players written once and referenced by index after
+// that; full buffers are appended to debug/weekly-world-events-<date>.bin on the IO thread.
+//
+// File format: the magic "WWEV", a version byte and the start time in ms, then records that each
+// begin with a tag byte. Numbers are unsigned varints unless noted.
+//   STRING  length, UTF-8 bytes; takes the next string index
+//   PLAYER  UUID as two 8-byte longs, name string index; takes the next player index
+//   EVENT   nanoseconds since the previous event (varlong), player index, world, type and value
+//           string indexes, amount, flags byte (1 = operator), and a varlong mask of the
+//           challenges whose restrictions were met, by position in the challenge set
+public class EventRecorder {
+    static final int MAGIC = 0x57574556;
+    static final int VERSION = 1;
+    static final int TAG_STRING = 1;
+    static final int TAG_PLAYER = 2;
+    static final int TAG_EVENT = 3;
+    static final int FLAG_OPERATOR = 1;
+
+    private static final String DUMP_DIR = "debug";
+    private static final int FLUSH_BYTES = 64 * 1024;
+    private static final long MAX_FILE_BYTES = 256L * 1024 * 1024;
+
+    private static volatile boolean recording = false;
+    private static File file = null;
+    private static final Map<String, Integer> strings = new HashMap<>();
+    private static final UuidMap<Integer> players = new UuidMap<>();
+    private static byte[] buffer = new byte[FLUSH_BYTES * 2];
+    private static int position = 0;
+    private static long lastEventNanos = 0;
+    private static long fileBytes = 0;
+    private static long events = 0;
+
+    // Only touched on the IO thread
+    private static OutputStream out = null;
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    // Must run on the server thread. Returns the file being written.
+    public static File start() {
+        if (recording)
+            return file;
+
+        File dir = new File(WeeklyWorld.getGameDir().toFile(), DUMP_DIR);
+        File target = new File(dir, "weekly-world-events-"
+                + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + ".bin");
+        strings.clear();
+        players.clear();
+        position = 0;
+        fileBytes = 0;
+        events = 0;
+        lastEventNanos = System.nanoTime();
+
+        writeInt(MAGIC);
+        writeByte(VERSION);
+        writeLong(System.currentTimeMillis());
+
+        BackgroundTasks.runIO(() -> {
+            dir.mkdirs();
+            try {
+                out = new BufferedOutputStream(new FileOutputStream(target));
+            } catch (IOException e) {
+                WeeklyWorld.LOGGER.error("Failed to create event recording {}", target, e);
+            }
+        });
+        file = target;
+        recording = true;
+        WeeklyWorld.LOGGER.info("Recording events to {}", target);
+        return target;
+    }
+
+    // Must run on the server thread. Returns the number of recorded events.
+    public static long stop() {
+        if (!recording)
+            return 0;
+
+        recording = false;
+        flushBuffer();
+        BackgroundTasks.runIO(() -> {
+            if (out == null)
+                return;
+            try {
+                out.close();
+            } catch (IOException e) {
+                WeeklyWorld.LOGGER.error("Failed to close event recording", e);
+            }
+            out = null;
+        });
+        WeeklyWorld.LOGGER.info("Recorded {} events to {}", events, file);
+        return events;
+    }
+
+    static void record(ServerPlayerEntity player, String type, String value, int amount) {
+        if (!recording)
+            return;
+
+        int playerIndex = playerIndex(player);
+        int worldIndex = stringIndex(
+                WorldUUIDSync.getWorldIdentifier(WorldUUIDSync.getOrCreateWorldHandle(player.getWorld())));
+        int typeIndex = stringIndex(type);
+        int valueIndex = stringIndex(value);
+
+        // Restrictions are stored as evaluated now, so a replay needs no world or player
+        long restrictionsMet = 0;
+        List<ChallengeDefinition> challenges = ServerChallengeData.getChallenges().getChallenges();
+        for (int i = 0; i < challenges.size() && i < Long.SIZE; i++) {
+            if (ServerChallengeData.areAllRestrictionsMet(player, challenges.get(i))) {
+                restrictionsMet |= 1L << i;
+            }
+        }
+
+        long now = System.nanoTime();
+        writeByte(TAG_EVENT);
+        writeVarLong(now - lastEventNanos);
+        writeVarInt(playerIndex);
+        writeVarInt(worldIndex);
+        writeVarInt(typeIndex);
+        writeVarInt(valueIndex);
+        writeVarInt(Math.max(0, amount));
+        writeByte(player.hasPermissionLevel(2) ? FLAG_OPERATOR : 0);
+        writeVarLong(restrictionsMet);
+        lastEventNanos = now;
+        events++;
+
+        if (position >= FLUSH_BYTES) {
+            flushBuffer();
+            if (fileBytes >= MAX_FILE_BYTES) {
+                WeeklyWorld.LOGGER.warn("Event recording reached {} MB, stopping", MAX_FILE_BYTES >> 20);
+                stop();
+            }
+        }
+    }
+
+    private static int playerIndex(ServerPlayerEntity player) {
+        Integer index = players.get(player.getUuid());
+        if (index != null)
+            return index;
+
+        int name = stringIndex(player.getGameProfile().getName());
+        writeByte(TAG_PLAYER);
+        writeLong(player.getUuid().getMostSignificantBits());
+        writeLong(player.getUuid().getLeastSignificantBits());
+        writeVarInt(name);
+        index = players.size();
+        players.put(player.getUuid(), index);
+        return index;
+    }
+
+    private static int stringIndex(String value) {
+        Integer index = strings.get(value);
+        if (index != null)
+            return index;
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeByte(TAG_STRING);
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        index = strings.size();
+        strings.put(value, index);
+        return index;
+    }
+
+    private static void flushBuffer() {
+        if (position == 0)
+            return;
+        byte[] chunk = Arrays.copyOf(buffer, position);
+        fileBytes += position;
+        position = 0;
+        BackgroundTasks.runIO(() -> {
+            if (out == null)
+                return;
+            try {
+                out.write(chunk);
+            } catch (IOException e) {
+                WeeklyWorld.LOGGER.error("Failed to write event recording", e);
+            }
+        });
+    }
+
+    private static void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+
+    private static void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private static void writeInt(int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            writeByte(value >>> shift);
+        }
+    }
+
+    private static void writeLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    private static void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+}
@@ -0,0 +1,294 @@
+package net.coolpixels;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+// Feeds a file written by EventRecorder through the event handling and player data code without
+// a server, to benchmark changes against real traffic. Runs on the mod's runtime classpath (see the
+// replayEvents Gradle task) against a copy of a server directory, whose config, challenges and
+// player data are used and modified:
+//
+//   EventReplay --dir <server directory copy> [--allow-unresolved-patterns] <events file>
+//
+// The recording is decoded up front, then replayed on one thread as fast as possible. Restrictions
+// are not checked again; every event carries the operator flag and restriction state it was
+// recorded with. Messages, packets, the audit log and API submissions are skipped, and event
+// strings come from the recording's table, so building them in the mixins is not measured.
+public class EventReplay {
+    private static final String[] OUTCOMES = { "completed", "progress", "already_completed", "blocked_commands",
+            "blocked_restrictions" };
+
+    private record Recording(String[] strings, UUID[] players, int size, long nanos,
+            int[] player, int[] world, int[] type, int[] value, int[] amount, byte[] flags, long[] restrictionsMet) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = null;
+        File eventsFile = null;
+        boolean allowUnresolved = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir" -> dir = Path.of(args[++i]);
+                case "--allow-unresolved-patterns" -> allowUnresolved = true;
+                default -> eventsFile = new File(args[i]);
+            }
+        }
+        if (dir == null || eventsFile == null) {
+            System.err.println(
+                    "Usage: EventReplay --dir <server directory copy> [--allow-unresolved-patterns] <events file>");
+            System.exit(2);
+        }
+
+        WeeklyWorld.setGameDir(dir);
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        long loadStart = System.nanoTime();
+        ServerEnvironmentConfig.loadConfig();
+        ServerPlayerData.loadData();
+        ChallengeSet challenges = ServerChallengeData.getChallenges();
+        List<String> unresolved = unresolvedPatterns(challenges);
+        if (!unresolved.isEmpty()) {
+            System.err.println("Objective patterns that need data packs or a running server and would match nothing:");
+            for (String pattern : unresolved) {
+                System.err.println("  " + pattern);
+            }
+            if (!allowUnresolved) {
+                System.err.println("Use --allow-unresolved-patterns to replay without them");
+                System.exit(2);
+            }
+        }
+        Recording recording = read(eventsFile);
+        long loadNanos = System.nanoTime() - loadStart;
+
+        Map<ChallengeDefinition, Integer> challengeIndexes = new IdentityHashMap<>();
+        for (ChallengeDefinition challenge : challenges.getChallenges()) {
+            challengeIndexes.put(challenge, challengeIndexes.size());
+        }
+        int[] worldHandles = new int[recording.strings().length];
+        ReplayContext context = new ReplayContext(challengeIndexes);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < recording.size(); i++) {
+            String type = recording.strings()[recording.type()[i]];
+            String value = recording.strings()[recording.value()[i]];
+            ChallengeDefinition.Objective[] objectives = challenges.findObjectives(type, value);
+            if (objectives == null) {
+                context.unmatched++;
+                continue;
+            }
+
+            int worldIndex = recording.world()[i];
+            if (worldHandles[worldIndex] == 0) {
+                worldHandles[worldIndex] = WorldUUIDSync.getWorldHandle(recording.strings()[worldIndex]);
+            }
+            context.playerUuid = recording.players()[recording.player()[i]];
+            context.world = worldHandles[worldIndex];
+            context.operator = (recording.flags()[i] & EventRecorder.FLAG_OPERATOR) != 0;
+            context.restrictionsMet = recording.restrictionsMet()[i];
+            ServerEventHandler.handleObjectiveEvents(context, objectives, type, value, recording.amount()[i]);
+        }
+        long replayNanos = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        // Counters and the last changes are written like on a server stop
+        long persistStart = System.nanoTime();
+        ObjectiveCounters.flushAll();
+        ServerPlayerData.close();
+        long persistNanos = System.nanoTime() - persistStart;
+
+        System.out.printf("Replayed %s (%d events, %d players, %.1f s recorded)%n", eventsFile, recording.size(),
+                recording.players().length, recording.nanos() / 1e9);
+        System.out.printf("Load: %.1f ms (config, challenges, player data, recording)%n", loadNanos / 1e6);
+        System.out.printf("Replay: %.1f ms, %.0f events/s, %.0f ns/event%n", replayNanos / 1e6,
+                recording.size() / Math.max(replayNanos / 1e9, 1e-9),
+                (double) replayNanos / Math.max(1, recording.size()));
+        System.out.printf("Allocated: %d bytes, %.1f bytes/event, %.1f MB/s%n", allocated,
+                (double) allocated / Math.max(1, recording.size()),
+                allocated / 1e6 / Math.max(replayNanos / 1e9, 1e-9));
+        System.out.printf("Persist: %.1f ms%n", persistNanos / 1e6);
+        System.out.printf("Events without a matching objective: %d%n", context.unmatched);
+        System.out.printf("Unresolved objective patterns: %d%n", unresolved.size());
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            System.out.printf("Outcome %s: %d%n", OUTCOMES[i], context.outcomes[i]);
+        }
+        System.out.printf("Objectives completed: %d%n", context.objectivesCompleted);
+        for (ChallengeDefinition challenge : challenges.getChallenges()) {
+            System.out.printf("Challenge %s completed by: %d%n",
+                    challenge.isPrimary() ? "week " + challenge.getWeek() : challenge.getId(),
+                    context.challengesCompleted.getOrDefault(challenge, 0));
+        }
+        System.exit(0);
+    }
+
+    // Without a server there are no data pack tags, advancements or worlds, so only item and kill
+    // wildcards resolve; everything else would silently match no events
+    private static List<String> unresolvedPatterns(ChallengeSet challenges) {
+        List<String> unresolved = new ArrayList<>();
+        for (ChallengeDefinition challenge : challenges.getChallenges()) {
+            for (ChallengeDefinition.Objective objective : challenge.getObjectives()) {
+                String content = objective.content();
+                if (!ObjectivePatterns.isPattern(content))
+                    continue;
+                boolean registry = objective.type().equals("item") || objective.type().equals("kill");
+                if (content.startsWith("#") || !registry) {
+                    unresolved.add(objective.type() + " " + content);
+                }
+            }
+        }
+        return unresolved;
+    }
+
+    private static Recording read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != EventRecorder.MAGIC)
+                throw new IOException("Not an event recording: " + file);
+            int version = in.readUnsignedByte();
+            if (version != EventRecorder.VERSION)
+                throw new IOException("Unsupported event recording version " + version);
+            in.readLong(); // Start time
+
+            List<String> strings = new ArrayList<>();
+            List<UUID> players = new ArrayList<>();
+            int capacity = 1024;
+            int size = 0;
+            long nanos = 0;
+            int[] player = new int[capacity];
+            int[] world = new int[capacity];
+            int[] type = new int[capacity];
+            int[] value = new int[capacity];
+            int[] amount = new int[capacity];
+            byte[] flags = new byte[capacity];
+            long[] restrictionsMet = new long[capacity];
+
+            int tag;
+            while ((tag = in.read()) != -1) {
+                switch (tag) {
+                    case EventRecorder.TAG_STRING -> {
+                        byte[] bytes = new byte[readVarInt(in)];
+                        in.readFully(bytes);
+                        strings.add(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                    case EventRecorder.TAG_PLAYER -> {
+                        players.add(new UUID(in.readLong(), in.readLong()));
+                        readVarInt(in); // Name
+                    }
+                    case EventRecorder.TAG_EVENT -> {
+                        if (size == capacity) {
+                            capacity *= 2;
+                            player = Arrays.copyOf(player, capacity);
+                            world = Arrays.copyOf(world, capacity);
+                            type = Arrays.copyOf(type, capacity);
+                            value = Arrays.copyOf(value, capacity);
+                            amount = Arrays.copyOf(amount, capacity);
+                            flags = Arrays.copyOf(flags, capacity);
+                            restrictionsMet = Arrays.copyOf(restrictionsMet, capacity);
+                        }
+                        nanos += readVarLong(in);
+                        player[size] = readVarInt(in);
+                        world[size] = readVarInt(in);
+                        type[size] = readVarInt(in);
+                        value[size] = readVarInt(in);
+                        amount[size] = readVarInt(in);
+                        flags[size] = in.readByte();
+                        restrictionsMet[size] = readVarLong(in);
+                        size++;
+                    }
+                    default -> throw new IOException("Corrupt event recording, unknown record " + tag);
+                }
+            }
+            // A recording cut off mid-record by a crash ends in EOFException, which is not hidden
+
+            return new Recording(strings.toArray(new String[0]), players.toArray(new UUID[0]), size, nanos, player, world, type, value, amount, flags,
+                    restrictionsMet);
+        }
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Varint too long");
+    }
+
+    // Reused for every event so the replay loop measures the handler's allocations only
+    private static final class ReplayContext implements EventContext {
+        private final Map<ChallengeDefinition, Integer> challengeIndexes;
+        UUID playerUuid;
+        int world;
+        boolean operator;
+        long restrictionsMet;
+
+        long unmatched = 0;
+        final long[] outcomes = new long[OUTCOMES.length];
+        long objectivesCompleted = 0;
+        final Map<ChallengeDefinition, Integer> challengesCompleted = new IdentityHashMap<>();
+
+        ReplayContext(Map<ChallengeDefinition, Integer> challengeIndexes) {
+            this.challengeIndexes = challengeIndexes;
+        }
+
+        @Override
+        public UUID playerUuid() {
+            return playerUuid;
+        }
+
+        @Override
+        public int world() {
+            return world;
+        }
+
+        @Override
+        public boolean canComplete(ChallengeDefinition challenge) {
+            // Challenges beyond the recorded mask count as unrestricted
+            int index = challengeIndexes.get(challenge);
+            return !operator && (index >= Long.SIZE || (restrictionsMet & 1L << index) != 0);
+        }
+
+        @Override
+        public boolean isOperator() {
+            return operator;
+        }
+
+        @Override
+        public void onOutcome(ChallengeDefinition.Objective objective, String type, String value, int amount,
+                String outcome) {
+            for (int i = 0; i < OUTCOMES.length; i++) {
+                if (OUTCOMES[i].equals(outcome)) {
+                    outcomes[i]++;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onProgress(ChallengeDefinition.Objective objective) {
+        }
+
+        @Override
+        public void onObjectiveCompleted(ChallengeDefinition.Objective objective) {
+            objectivesCompleted++;
+        }
+
+        @Override
+        public void onChallengeCompleted(ChallengeDefinition challenge) {
+            challengesCompleted.merge(challenge, 1, Integer::sum);
+        }
+    }
+}
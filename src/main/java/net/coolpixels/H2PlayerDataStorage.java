@@ -0,0 +1,304 @@
+package net.coolpixels;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+// Embedded single-file H2 database. Completions are stored one row per
+// (player, world, objective) so marking an objective is a single insert instead of a full rewrite.
+// Methods are synchronized because background saves share the connection with the server thread.
+public class H2PlayerDataStorage implements PlayerDataStorage {
+    private static final String OBJECTIVES_TABLE = "objective_completions";
+    private static final String RESTRICTIONS_TABLE = "restriction_checks";
+    private static final String COUNTERS_TABLE = "objective_counters";
+    private static final String META_TABLE = "weekly_world_meta";
+    private static final int BATCH_SIZE = 1000;
+
+    private final File databaseBase;
+    private Connection connection;
+    private PreparedStatement insertObjective;
+    private PreparedStatement insertRestriction;
+    private PreparedStatement mergeCounter;
+
+    // databaseBase is the path without H2's ".mv.db" extension
+    public H2PlayerDataStorage(File databaseBase) {
+        this.databaseBase = databaseBase;
+    }
+
+    @Override
+    public String getName() {
+        return "h2";
+    }
+
+    @Override
+    public boolean exists() {
+        return new File(databaseBase.getPath() + ".mv.db").exists();
+    }
+
+    @Override
+    public synchronized void load(PlayerDataSet data) throws IOException {
+        try {
+            open();
+            readTable(OBJECTIVES_TABLE, data.objectives);
+            readTable(RESTRICTIONS_TABLE, data.restrictions);
+            readCounters(data.counters);
+            data.week = readWeek();
+        } catch (SQLException e) {
+            throw new IOException("Failed to load player data from " + databaseBase, e);
+        }
+    }
+
+    @Override
+    public synchronized void saveAll(PlayerDataSet data) throws IOException {
+        try {
+            open();
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("DELETE FROM " + OBJECTIVES_TABLE);
+                    statement.executeUpdate("DELETE FROM " + RESTRICTIONS_TABLE);
+                    statement.executeUpdate("DELETE FROM " + COUNTERS_TABLE);
+                }
+                insertAll(insertObjective, data.objectives);
+                insertAll(insertRestriction, data.restrictions);
+                for (Map.Entry<String, Map<String, Map<String, Integer>>> player : data.counters.entrySet()) {
+                    for (Map.Entry<String, Map<String, Integer>> world : player.getValue().entrySet()) {
+                        addCounters(player.getKey(), world.getKey(), world.getValue());
+                    }
+                }
+                mergeCounter.executeBatch();
+                writeWeek(data.week);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to save player data to " + databaseBase, e);
+        }
+    }
+
+    @Override
+    public synchronized boolean saveObjectiveCompleted(String playerUuid, String worldIdentifier, String key)
+            throws IOException {
+        return insertOne(true, playerUuid, worldIdentifier, key);
+    }
+
+    @Override
+    public synchronized boolean saveRestrictionChecked(String playerUuid, String worldIdentifier, String key)
+            throws IOException {
+        return insertOne(false, playerUuid, worldIdentifier, key);
+    }
+
+    @Override
+    public synchronized boolean saveCounters(String playerUuid, String worldIdentifier,
+            Map<String, Integer> counters) throws IOException {
+        try {
+            open();
+            try {
+                addCounters(playerUuid, worldIdentifier, counters);
+                mergeCounter.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            return true;
+        } catch (SQLException e) {
+            throw new IOException("Failed to update counters in " + databaseBase, e);
+        }
+    }
+
+    @Override
+    public synchronized boolean deleteWorlds(Set<String> worldIdentifiers) throws IOException {
+        try {
+            open();
+            try (PreparedStatement deleteObjectives = connection.prepareStatement(
+                    "DELETE FROM " + OBJECTIVES_TABLE + " WHERE world_id = ?");
+                    PreparedStatement deleteRestrictions = connection.prepareStatement(
+                            "DELETE FROM " + RESTRICTIONS_TABLE + " WHERE world_id = ?");
+                    PreparedStatement deleteCounters = connection.prepareStatement(
+                            "DELETE FROM " + COUNTERS_TABLE + " WHERE world_id = ?")) {
+                for (String worldIdentifier : worldIdentifiers) {
+                    deleteObjectives.setString(1, worldIdentifier);
+                    deleteObjectives.addBatch();
+                    deleteRestrictions.setString(1, worldIdentifier);
+                    deleteRestrictions.addBatch();
+                    deleteCounters.setString(1, worldIdentifier);
+                    deleteCounters.addBatch();
+                }
+                deleteObjectives.executeBatch();
+                deleteRestrictions.executeBatch();
+                deleteCounters.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            return true;
+        } catch (SQLException e) {
+            throw new IOException("Failed to delete worlds from " + databaseBase, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection == null)
+            return;
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            WeeklyWorld.LOGGER.error("Failed to close player database", e);
+        }
+        connection = null;
+        insertObjective = null;
+        insertRestriction = null;
+        mergeCounter = null;
+    }
+
+    private void open() throws SQLException {
+        if (connection != null)
+            return;
+
+        // Connect through the driver directly; DriverManager does not see drivers nested in mod jars
+        connection = new org.h2.Driver().connect("jdbc:h2:file:" + databaseBase.getAbsolutePath(), new Properties());
+        if (connection == null) {
+            throw new SQLException("H2 driver rejected database path " + databaseBase);
+        }
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[] { OBJECTIVES_TABLE, RESTRICTIONS_TABLE }) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " ("
+                        + "player_uuid VARCHAR(64) NOT NULL, "
+                        + "world_id VARCHAR(255) NOT NULL, "
+                        + "entry VARCHAR(512) NOT NULL, "
+                        + "PRIMARY KEY (player_uuid, world_id, entry))");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + table + "_world ON " + table + " (world_id)");
+            }
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + COUNTERS_TABLE + " ("
+                    + "player_uuid VARCHAR(64) NOT NULL, "
+                    + "world_id VARCHAR(255) NOT NULL, "
+                    + "entry VARCHAR(512) NOT NULL, "
+                    + "progress INT NOT NULL, "
+                    + "PRIMARY KEY (player_uuid, world_id, entry))");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + COUNTERS_TABLE + "_world ON " + COUNTERS_TABLE
+                    + " (world_id)");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + META_TABLE + " ("
+                    + "name VARCHAR(64) PRIMARY KEY, "
+                    + "meta_value VARCHAR(255) NOT NULL)");
+        }
+        connection.commit();
+
+        insertObjective = prepareInsert(OBJECTIVES_TABLE);
+        insertRestriction = prepareInsert(RESTRICTIONS_TABLE);
+        mergeCounter = connection.prepareStatement("MERGE INTO " + COUNTERS_TABLE
+                + " (player_uuid, world_id, entry, progress) KEY (player_uuid, world_id, entry) VALUES (?, ?, ?, ?)");
+    }
+
+    private void addCounters(String playerUuid, String worldIdentifier, Map<String, Integer> counters)
+            throws SQLException {
+        for (Map.Entry<String, Integer> counter : counters.entrySet()) {
+            mergeCounter.setString(1, playerUuid);
+            mergeCounter.setString(2, worldIdentifier);
+            mergeCounter.setString(3, counter.getKey());
+            mergeCounter.setInt(4, counter.getValue());
+            mergeCounter.addBatch();
+        }
+    }
+
+    private void readCounters(Map<String, Map<String, Map<String, Integer>>> target) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery(
+                        "SELECT player_uuid, world_id, entry, progress FROM " + COUNTERS_TABLE)) {
+            while (rows.next()) {
+                target.computeIfAbsent(rows.getString(1), k -> new HashMap<>())
+                        .computeIfAbsent(rows.getString(2), k -> new HashMap<>())
+                        .put(rows.getString(3), rows.getInt(4));
+            }
+        }
+    }
+
+    private PreparedStatement prepareInsert(String table) throws SQLException {
+        return connection.prepareStatement(
+                "MERGE INTO " + table + " (player_uuid, world_id, entry) KEY (player_uuid, world_id, entry) VALUES (?, ?, ?)");
+    }
+
+    private int readWeek() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT meta_value FROM " + META_TABLE + " WHERE name = 'week'");
+                ResultSet rows = select.executeQuery()) {
+            return rows.next() ? Integer.parseInt(rows.getString(1)) : 0;
+        } catch (NumberFormatException e) {
+            WeeklyWorld.LOGGER.warn("Ignoring malformed week in player database", e);
+            return 0;
+        }
+    }
+
+    private void writeWeek(int week) throws SQLException {
+        try (PreparedStatement merge = connection.prepareStatement(
+                "MERGE INTO " + META_TABLE + " (name, meta_value) KEY (name) VALUES ('week', ?)")) {
+            merge.setString(1, Integer.toString(week));
+            merge.executeUpdate();
+        }
+    }
+
+    private void readTable(String table, Map<String, Map<String, Set<String>>> target) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT player_uuid, world_id, entry FROM " + table)) {
+            while (rows.next()) {
+                target.computeIfAbsent(rows.getString(1), k -> new HashMap<>())
+                        .computeIfAbsent(rows.getString(2), k -> new HashSet<>())
+                        .add(rows.getString(3));
+            }
+        }
+    }
+
+    private void insertAll(PreparedStatement insert, Map<String, Map<String, Set<String>>> data)
+            throws SQLException {
+        int pending = 0;
+        for (Map.Entry<String, Map<String, Set<String>>> player : data.entrySet()) {
+            for (Map.Entry<String, Set<String>> world : player.getValue().entrySet()) {
+                for (String entry : world.getValue()) {
+                    insert.setString(1, player.getKey());
+                    insert.setString(2, world.getKey());
+                    insert.setString(3, entry);
+                    insert.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+        }
+        if (pending > 0) {
+            insert.executeBatch();
+        }
+    }
+
+    private boolean insertOne(boolean objective, String playerUuid, String worldIdentifier, String key)
+            throws IOException {
+        try {
+            open();
+            try {
+                PreparedStatement statement = objective ? insertObjective : insertRestriction;
+                statement.setString(1, playerUuid);
+                statement.setString(2, worldIdentifier);
+                statement.setString(3, key);
+                statement.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            return true;
+        } catch (SQLException e) {
+            throw new IOException("Failed to update player data in " + databaseBase, e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package net.coolpixels;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class JsonPlayerDataStorage implements PlayerDataStorage {
+    private static final Gson GSON = new Gson();
+
+    private final File file;
+
+    public JsonPlayerDataStorage(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public boolean exists() {
+        return file.exists();
+    }
+
+    @Override
+    public void load(PlayerDataSet data) throws IOException {
+        read(file, data);
+    }
+
+    @Override
+    public void saveAll(PlayerDataSet data) throws IOException {
+        file.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(file)) {
+            write(writer, data);
+        }
+    }
+
+    static void read(File file, PlayerDataSet out) throws IOException {
+        try (Reader reader = new FileReader(file)) {
+            read(reader, out);
+        }
+    }
+
+    // Files written before weeks were tracked leave the week at 0
+    static void read(Reader reader, PlayerDataSet out) throws IOException {
+        try {
+            Map<String, Object> data = GSON.fromJson(reader, new TypeToken<Map<String, Object>>() {
+            }.getType());
+            if (data != null) {
+                if (data.get("week") instanceof Number number) {
+                    out.week = number.intValue();
+                }
+
+                // Load objective completions
+                if (data.containsKey("objectives")) {
+                    Map<String, Map<String, Set<String>>> objectives = GSON.fromJson(
+                            GSON.toJson(data.get("objectives")),
+                            new TypeToken<Map<String, Map<String, Set<String>>>>() {
+                            }.getType());
+                    if (objectives != null) {
+                        out.objectives.putAll(objectives);
+                    }
+                }
+
+                // Load restriction checks
+                if (data.containsKey("restrictions")) {
+                    Map<String, Map<String, Set<String>>> restrictions = GSON.fromJson(
+                            GSON.toJson(data.get("restrictions")),
+                            new TypeToken<Map<String, Map<String, Set<String>>>>() {
+                            }.getType());
+                    if (restrictions != null) {
+                        out.restrictions.putAll(restrictions);
+                    }
+                }
+
+                // Load progress of count objectives
+                if (data.containsKey("counters")) {
+                    Map<String, Map<String, Map<String, Integer>>> counters = GSON.fromJson(
+                            GSON.toJson(data.get("counters")),
+                            new TypeToken<Map<String, Map<String, Map<String, Integer>>>>() {
+                            }.getType());
+                    if (counters != null) {
+                        out.counters.putAll(counters);
+                    }
+                }
+            }
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed player data", e);
+        }
+    }
+
+    static void write(Writer writer, PlayerDataSet in) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("week", in.week);
+        data.put("objectives", in.objectives);
+        data.put("restrictions", in.restrictions);
+        data.put("counters", in.counters);
+
+        try {
+            GSON.toJson(data, writer);
+        } catch (JsonIOException e) {
+            throw new IOException("Failed to write player data", e);
+        }
+    }
+}
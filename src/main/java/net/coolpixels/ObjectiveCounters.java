@@ -0,0 +1,111 @@
+package net.coolpixels;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Progress of count objectives for online players, kept in int arrays indexed by objective
+// ordinal so pickups and kills only touch primitives. The arrays are loaded from and flushed to
+// ServerPlayerData when a player joins, leaves, completes an objective or the server stops.
+public class ObjectiveCounters {
+    private static final class PlayerCounters {
+        final UUID playerUuid;
+        final int world;
+        final ChallengeSet challenges;
+        final int[] progress;
+        boolean dirty;
+
+        PlayerCounters(UUID playerUuid, int world, ChallengeSet challenges) {
+            this.playerUuid = playerUuid;
+            this.world = world;
+            this.challenges = challenges;
+            this.progress = new int[challenges.getObjectives().size()];
+
+            Map<String, Integer> stored = ServerPlayerData.getCounters(playerUuid, world);
+            if (stored != null) {
+                for (ChallengeDefinition.Objective objective : challenges.getObjectives()) {
+                    Integer value = stored.get(objective.key());
+                    if (value != null) {
+                        progress[objective.ordinal()] = value;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final Map<UUID, PlayerCounters> onlinePlayers = new HashMap<>();
+
+    // Adds amount to a count objective and returns true only for the call that reaches its count
+    public static boolean add(UUID playerUuid, int world, ChallengeDefinition.Objective objective, int amount) {
+        if (amount <= 0)
+            return false;
+
+        PlayerCounters counters = get(playerUuid, world);
+        int before = counters.progress[objective.ordinal()];
+        if (before >= objective.count())
+            return false;
+
+        int after = (int) Math.min((long) before + amount, Integer.MAX_VALUE);
+        counters.progress[objective.ordinal()] = after;
+        counters.dirty = true;
+        return after >= objective.count();
+    }
+
+    public static int getProgress(ServerPlayerEntity player, int world, ChallengeDefinition.Objective objective) {
+        return get(player.getUuid(), world).progress[objective.ordinal()];
+    }
+
+    private static PlayerCounters get(UUID playerUuid, int world) {
+        ChallengeSet challenges = ServerChallengeData.getChallenges();
+        PlayerCounters counters = onlinePlayers.get(playerUuid);
+        if (counters != null && counters.challenges == challenges && counters.world == world)
+            return counters;
+
+        // First event of this player, or the world or challenge changed since the counters were loaded
+        if (counters != null) {
+            flush(counters);
+        }
+        counters = new PlayerCounters(playerUuid, world, challenges);
+        onlinePlayers.put(playerUuid, counters);
+        return counters;
+    }
+
+    public static void flush(UUID playerUuid) {
+        PlayerCounters counters = onlinePlayers.get(playerUuid);
+        if (counters != null) {
+            flush(counters);
+        }
+    }
+
+    // Flushes and forgets the counters of a player that left the server
+    public static void remove(ServerPlayerEntity player) {
+        PlayerCounters counters = onlinePlayers.remove(player.getUuid());
+        if (counters != null) {
+            flush(counters);
+        }
+    }
+
+    public static void flushAll() {
+        for (PlayerCounters counters : onlinePlayers.values()) {
+            flush(counters);
+        }
+        onlinePlayers.clear();
+    }
+
+    private static void flush(PlayerCounters counters) {
+        if (!counters.dirty)
+            return;
+
+        Map<String, Integer> values = new HashMap<>();
+        for (ChallengeDefinition.Objective objective : counters.challenges.getObjectives()) {
+            int value = counters.progress[objective.ordinal()];
+            if (value > 0) {
+                values.put(objective.key(), value);
+            }
+        }
+        ServerPlayerData.updateCounters(counters.playerUuid, counters.world, values);
+        counters.dirty = false;
+    }
+}
@@ -0,0 +1,149 @@
+package net.coolpixels;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.advancement.AdvancementEntry;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.Registry;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+// Objective contents that match more than one id: a tag ("#minecraft:logs") or a wildcard
+// ("minecraft:*_golem"). Patterns are never matched against event strings. When a challenge set
+// is first used they are resolved against the running server: item and kill patterns become a
+// bitset over the registry's raw ids, advancement and dimension wildcards are matched against the
+// loaded advancements and worlds, and the result is expanded into the exact ids the event lookup
+// already uses. Challenge sets are resolved when they are loaded, and again after a data pack
+// reload since tags and advancements come from data packs.
+public class ObjectivePatterns {
+    private static volatile MinecraftServer server = null;
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTING.register(s -> server = s);
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((s, resourceManager, success) -> {
+            if (success) {
+                ServerChallengeData.getChallenges().refreshPatterns();
+                ChallengeFetcher.recompilePending();
+            }
+        });
+        ServerLifecycleEvents.SERVER_STOPPED.register(s -> server = null);
+    }
+
+    // Whether there is a server to resolve advancements and dimensions against
+    public static boolean canResolve() {
+        return server != null;
+    }
+
+    public static boolean isPattern(String content) {
+        return content.startsWith("#") || content.indexOf('*') >= 0;
+    }
+
+    // Raw ids of the items an "item" objective matches, exact id or pattern
+    static BitSet itemIds(String content) {
+        if (isPattern(content))
+            return compile(Registries.ITEM, content);
+
+        BitSet ids = new BitSet();
+        Identifier id = Identifier.tryParse(content);
+        if (id != null && Registries.ITEM.containsId(id)) {
+            ids.set(Registries.ITEM.getRawId(Registries.ITEM.get(id)));
+        } else {
+            WeeklyWorld.LOGGER.warn("Unknown item in objective: {}", content);
+        }
+        return ids;
+    }
+
+    // The exact ids a pattern matches right now, in the form events report them
+    static List<String> expand(String type, String pattern) {
+        List<String> ids = new ArrayList<>();
+        switch (type) {
+            case "item" -> addIds(Registries.ITEM, compile(Registries.ITEM, pattern), ids);
+            case "kill" -> addIds(Registries.ENTITY_TYPE, compile(Registries.ENTITY_TYPE, pattern), ids);
+            case "advancement", "dimension" -> {
+                MinecraftServer current = server;
+                if (pattern.startsWith("#")) {
+                    WeeklyWorld.LOGGER.warn("Tags are not supported for {} objectives: {}", type, pattern);
+                } else if (current != null) {
+                    Pattern glob = compileGlob(pattern);
+                    for (String id : type.equals("advancement") ? advancementIds(current) : dimensionIds(current)) {
+                        if (glob.matcher(id).matches()) {
+                            ids.add(id);
+                        }
+                    }
+                }
+            }
+            default -> WeeklyWorld.LOGGER.warn("Patterns are not supported for {} objectives: {}", type, pattern);
+        }
+
+        if (ids.isEmpty()) {
+            WeeklyWorld.LOGGER.warn("Objective pattern {} {} matches nothing", type, pattern);
+        } else {
+            WeeklyWorld.LOGGER.debug("Objective pattern {} {} matches {} id(s)", type, pattern, ids.size());
+        }
+        return ids;
+    }
+
+    // Raw ids of the registry entries in a tag, or whose id matches a wildcard
+    private static <T> BitSet compile(Registry<T> registry, String pattern) {
+        BitSet ids = new BitSet(registry.size());
+        if (pattern.startsWith("#")) {
+            Identifier tagId = Identifier.tryParse(pattern.substring(1));
+            if (tagId == null) {
+                WeeklyWorld.LOGGER.warn("Invalid tag in objective: {}", pattern);
+                return ids;
+            }
+            for (RegistryEntry<T> entry : registry.iterateEntries(TagKey.of(registry.getKey(), tagId))) {
+                ids.set(registry.getRawId(entry.value()));
+            }
+        } else {
+            Pattern glob = compileGlob(pattern);
+            for (T value : registry) {
+                if (glob.matcher(registry.getId(value).toString()).matches()) {
+                    ids.set(registry.getRawId(value));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static <T> void addIds(Registry<T> registry, BitSet rawIds, List<String> out) {
+        for (int raw = rawIds.nextSetBit(0); raw >= 0; raw = rawIds.nextSetBit(raw + 1)) {
+            out.add(registry.getId(registry.get(raw)).toString());
+        }
+    }
+
+    // '*' matches any run of characters; a pattern without namespace means minecraft:, as for ids
+    private static Pattern compileGlob(String pattern) {
+        String full = pattern.indexOf(':') >= 0 ? pattern : "minecraft:" + pattern;
+        StringBuilder regex = new StringBuilder();
+        for (String part : full.split("\\*", -1)) {
+            if (!regex.isEmpty()) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(part));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static List<String> advancementIds(MinecraftServer server) {
+        List<String> ids = new ArrayList<>();
+        for (AdvancementEntry advancement : server.getAdvancementLoader().getAdvancements()) {
+            ids.add(advancement.id().toString());
+        }
+        return ids;
+    }
+
+    private static List<String> dimensionIds(MinecraftServer server) {
+        List<String> ids = new ArrayList<>();
+        for (RegistryKey<World> world : server.getWorldRegistryKeys()) {
+            ids.add(world.getValue().toString());
+        }
+        return ids;
+    }
+}
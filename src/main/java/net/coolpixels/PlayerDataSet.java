@@ -0,0 +1,37 @@
+package net.coolpixels;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Player progress in the form it is persisted in, passed between ServerPlayerData and a PlayerDataStorage
+public class PlayerDataSet {
+    // Challenge week the data belongs to, 0 if unknown
+    public int week;
+
+    // Map: PlayerUUID -> WorldIdentifier -> Set of completed objective keys
+    public final Map<String, Map<String, Set<String>>> objectives;
+
+    // Map: PlayerUUID -> WorldIdentifier -> Set of checked restrictions
+    public final Map<String, Map<String, Set<String>>> restrictions;
+
+    // Map: PlayerUUID -> WorldIdentifier -> objective key -> progress of count objectives
+    public final Map<String, Map<String, Map<String, Integer>>> counters;
+
+    public PlayerDataSet() {
+        this(0, new HashMap<>(), new HashMap<>(), new HashMap<>());
+    }
+
+    public PlayerDataSet(int week, Map<String, Map<String, Set<String>>> objectives,
+            Map<String, Map<String, Set<String>>> restrictions,
+            Map<String, Map<String, Map<String, Integer>>> counters) {
+        this.week = week;
+        this.objectives = objectives;
+        this.restrictions = restrictions;
+        this.counters = counters;
+    }
+
+    public boolean isEmpty() {
+        return objectives.isEmpty() && restrictions.isEmpty() && counters.isEmpty();
+    }
+}
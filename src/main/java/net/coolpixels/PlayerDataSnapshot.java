@@ -0,0 +1,339 @@
+package net.coolpixels;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Compact binary snapshot of ServerPlayerData.
+//
+// Layout (big endian):
+//   int magic, int version, int week (version 2+)
+//   int worldCount, then worldCount strings (int length + UTF-8 bytes)
+//   int keyCount, then keyCount strings (objective and restriction keys share one table)
+//   int maskWords (longs per bitmask), int recordCount
+//   recordCount fixed-width records, one per player/world pair:
+//     long uuidMost, long uuidLeast, int worldIndex,
+//     long[maskWords] completed objectives, long[maskWords] checked restrictions
+//   int counterCount (version 3+), then counterCount fixed-width counter records:
+//     long uuidMost, long uuidLeast, int worldIndex, int keyIndex, int progress
+//   string (version 4+): player data whose player key is not a UUID, as player data json, empty if none
+public class PlayerDataSnapshot {
+    private static final int MAGIC = 0x57575053; // "WWPS"
+    private static final int VERSION = 4;
+    private static final int COUNTER_RECORD_SIZE = 16 + 4 + 4 + 4;
+
+    public static void write(File file, PlayerDataSet all) throws IOException {
+        // Records only hold UUIDs; other player keys, which ServerPlayerData keeps as loaded, are
+        // stored as json in a side section so they survive a save
+        PlayerDataSet others = new PlayerDataSet();
+        PlayerDataSet data = new PlayerDataSet(all.week, splitOthers(all.objectives, others.objectives),
+                splitOthers(all.restrictions, others.restrictions), splitOthers(all.counters, others.counters));
+        byte[] othersBytes = new byte[0];
+        if (!others.isEmpty()) {
+            StringWriter json = new StringWriter();
+            JsonPlayerDataStorage.write(json, others);
+            othersBytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        // Build string tables and collect every player/world pair
+        Map<String, Integer> worldTable = new LinkedHashMap<>();
+        Map<String, Integer> keyTable = new LinkedHashMap<>();
+        Map<String, Set<String>> pairs = new LinkedHashMap<>();
+        collect(data.objectives, worldTable, keyTable, pairs);
+        collect(data.restrictions, worldTable, keyTable, pairs);
+
+        int counterCount = 0;
+        for (Map.Entry<String, Map<String, Map<String, Integer>>> player : data.counters.entrySet()) {
+            for (Map.Entry<String, Map<String, Integer>> world : player.getValue().entrySet()) {
+                worldTable.putIfAbsent(world.getKey(), worldTable.size());
+                for (String key : world.getValue().keySet()) {
+                    keyTable.putIfAbsent(key, keyTable.size());
+                }
+                counterCount += world.getValue().size();
+            }
+        }
+
+        int maskWords = Math.max(1, (keyTable.size() + 63) >>> 6);
+        List<byte[]> worldBytes = encode(worldTable.keySet());
+        List<byte[]> keyBytes = encode(keyTable.keySet());
+
+        List<UUID> playerIds = new ArrayList<>();
+        List<String> playerKeys = new ArrayList<>();
+        int recordCount = 0;
+        for (Map.Entry<String, Set<String>> pair : pairs.entrySet()) {
+            playerIds.add(UUID.fromString(pair.getKey()));
+            playerKeys.add(pair.getKey());
+            recordCount += pair.getValue().size();
+        }
+
+        long recordSize = 16 + 4 + 16L * maskWords;
+        long size = 12 + sizeOf(worldBytes) + sizeOf(keyBytes) + 8 + recordSize * recordCount
+                + 4 + (long) COUNTER_RECORD_SIZE * counterCount + 4 + othersBytes.length;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Player data too large for binary snapshot: " + size + " bytes");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(data.week);
+        putStrings(buf, worldBytes);
+        putStrings(buf, keyBytes);
+        buf.putInt(maskWords).putInt(recordCount);
+
+        long[] objectiveMask = new long[maskWords];
+        long[] restrictionMask = new long[maskWords];
+        for (int i = 0; i < playerIds.size(); i++) {
+            UUID uuid = playerIds.get(i);
+            String player = playerKeys.get(i);
+            Map<String, Set<String>> playerObjectives = data.objectives.getOrDefault(player, Collections.emptyMap());
+            Map<String, Set<String>> playerRestrictions = data.restrictions.getOrDefault(player,
+                    Collections.emptyMap());
+
+            for (String world : pairs.get(player)) {
+                fillMask(objectiveMask, playerObjectives.get(world), keyTable);
+                fillMask(restrictionMask, playerRestrictions.get(world), keyTable);
+
+                buf.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+                buf.putInt(worldTable.get(world));
+                for (long word : objectiveMask)
+                    buf.putLong(word);
+                for (long word : restrictionMask)
+                    buf.putLong(word);
+            }
+        }
+
+        buf.putInt(counterCount);
+        for (Map.Entry<String, Map<String, Map<String, Integer>>> player : data.counters.entrySet()) {
+            UUID uuid = UUID.fromString(player.getKey());
+            for (Map.Entry<String, Map<String, Integer>> world : player.getValue().entrySet()) {
+                int worldIndex = worldTable.get(world.getKey());
+                for (Map.Entry<String, Integer> counter : world.getValue().entrySet()) {
+                    buf.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+                    buf.putInt(worldIndex).putInt(keyTable.get(counter.getKey())).putInt(counter.getValue());
+                }
+            }
+        }
+        buf.putInt(othersBytes.length).put(othersBytes);
+        buf.flip();
+
+        // Write to a temporary file first so a crash never leaves a truncated snapshot
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Version 1 snapshots leave the week at 0
+    public static void read(File file, PlayerDataSet data) throws IOException {
+        // Read into the heap rather than mapping the file: a mapping stays open until it is garbage
+        // collected, and on Windows a mapped file cannot be replaced by the next write
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Player data snapshot too large: " + file);
+            }
+            buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0)
+                    break;
+            }
+            buf.flip();
+        }
+
+        try {
+            if (buf.remaining() < 8 || buf.getInt() != MAGIC) {
+                throw new IOException("Not a Weekly World player data snapshot: " + file);
+            }
+            int version = buf.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported player data snapshot version " + version + ": " + file);
+            }
+            if (version >= 2) {
+                data.week = buf.getInt();
+            }
+
+            String[] worlds = getStrings(buf);
+            String[] keys = getStrings(buf);
+            int maskWords = buf.getInt();
+            int recordCount = buf.getInt();
+
+            long lastMost = 0;
+            long lastLeast = 0;
+            String player = null;
+            for (int i = 0; i < recordCount; i++) {
+                long most = buf.getLong();
+                long least = buf.getLong();
+                String world = worlds[buf.getInt()];
+
+                // Records are grouped by player, so only format the UUID when it changes
+                if (player == null || most != lastMost || least != lastLeast) {
+                    player = new UUID(most, least).toString();
+                    lastMost = most;
+                    lastLeast = least;
+                }
+
+                readMask(buf, maskWords, keys, data.objectives, player, world);
+                readMask(buf, maskWords, keys, data.restrictions, player, world);
+            }
+
+            if (version >= 3) {
+                int counterCount = buf.getInt();
+                player = null;
+                for (int i = 0; i < counterCount; i++) {
+                    long most = buf.getLong();
+                    long least = buf.getLong();
+                    String world = worlds[buf.getInt()];
+                    String key = keys[buf.getInt()];
+                    int progress = buf.getInt();
+
+                    if (player == null || most != lastMost || least != lastLeast) {
+                        player = new UUID(most, least).toString();
+                        lastMost = most;
+                        lastLeast = least;
+                    }
+                    data.counters.computeIfAbsent(player, k -> new HashMap<>())
+                            .computeIfAbsent(world, k -> new HashMap<>())
+                            .put(key, progress);
+                }
+            }
+
+            if (version >= 4) {
+                byte[] othersBytes = new byte[buf.getInt()];
+                buf.get(othersBytes);
+                if (othersBytes.length > 0) {
+                    PlayerDataSet others = new PlayerDataSet();
+                    JsonPlayerDataStorage.read(new StringReader(new String(othersBytes, StandardCharsets.UTF_8)),
+                            others);
+                    data.objectives.putAll(others.objectives);
+                    data.restrictions.putAll(others.restrictions);
+                    data.counters.putAll(others.counters);
+                }
+            }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupt player data snapshot: " + file, e);
+        }
+    }
+
+    public static void convertJsonToSnapshot(File jsonFile, File snapshotFile) throws IOException {
+        PlayerDataSet data = new PlayerDataSet();
+        JsonPlayerDataStorage.read(jsonFile, data);
+        write(snapshotFile, data);
+    }
+
+    public static void convertSnapshotToJson(File snapshotFile, File jsonFile) throws IOException {
+        PlayerDataSet data = new PlayerDataSet();
+        read(snapshotFile, data);
+        try (Writer writer = new FileWriter(jsonFile)) {
+            JsonPlayerDataStorage.write(writer, data);
+        }
+    }
+
+    private static void collect(Map<String, Map<String, Set<String>>> data, Map<String, Integer> worldTable,
+            Map<String, Integer> keyTable, Map<String, Set<String>> pairs) {
+        for (Map.Entry<String, Map<String, Set<String>>> player : data.entrySet()) {
+            for (Map.Entry<String, Set<String>> world : player.getValue().entrySet()) {
+                worldTable.putIfAbsent(world.getKey(), worldTable.size());
+                pairs.computeIfAbsent(player.getKey(), k -> new LinkedHashSet<>()).add(world.getKey());
+                for (String key : world.getValue()) {
+                    keyTable.putIfAbsent(key, keyTable.size());
+                }
+            }
+        }
+    }
+
+    private static void fillMask(long[] mask, Set<String> keys, Map<String, Integer> keyTable) {
+        Arrays.fill(mask, 0L);
+        if (keys == null)
+            return;
+        for (String key : keys) {
+            int index = keyTable.get(key);
+            mask[index >>> 6] |= 1L << index;
+        }
+    }
+
+    private static void readMask(ByteBuffer buf, int maskWords, String[] keys,
+            Map<String, Map<String, Set<String>>> target, String player, String world) {
+        Set<String> set = null;
+        for (int word = 0; word < maskWords; word++) {
+            long bits = buf.getLong();
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (set == null) {
+                    set = target.computeIfAbsent(player, k -> new HashMap<>())
+                            .computeIfAbsent(world, k -> new HashSet<>());
+                }
+                set.add(keys[index]);
+            }
+        }
+    }
+
+    private static List<byte[]> encode(Collection<String> strings) {
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        for (String s : strings) {
+            encoded.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return encoded;
+    }
+
+    private static long sizeOf(List<byte[]> strings) {
+        long size = 4;
+        for (byte[] bytes : strings) {
+            size += 4 + bytes.length;
+        }
+        return size;
+    }
+
+    private static void putStrings(ByteBuffer buf, List<byte[]> strings) {
+        buf.putInt(strings.size());
+        for (byte[] bytes : strings) {
+            buf.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String[] getStrings(ByteBuffer buf) {
+        String[] strings = new String[buf.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    // Entries of players whose key is a UUID, moving the others into the given map
+    private static <T> Map<String, T> splitOthers(Map<String, T> byPlayer, Map<String, T> others) {
+        Map<String, T> uuids = new LinkedHashMap<>();
+        for (Map.Entry<String, T> player : byPlayer.entrySet()) {
+            (parseUuid(player.getKey()) != null ? uuids : others).put(player.getKey(), player.getValue());
+        }
+        return uuids;
+    }
+
+    private static UUID parseUuid(String value) {
+        try {
+            // UUID.fromString is lenient, so only accept keys that round-trip exactly
+            UUID uuid = UUID.fromString(value);
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
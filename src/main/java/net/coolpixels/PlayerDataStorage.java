@@ -0,0 +1,45 @@
+package net.coolpixels;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+// Persistence backend for ServerPlayerData. The in-memory maps stay the source of truth for
+// lookups; a storage only has to load them once and keep the on-disk copy up to date.
+public interface PlayerDataStorage {
+    // Short name used in the "player_data_storage" config option
+    String getName();
+
+    // Whether this storage already holds data on disk
+    boolean exists();
+
+    // Fills the given data set, including the week it belongs to (0 if unknown)
+    void load(PlayerDataSet data) throws IOException;
+
+    // Replaces everything on disk with the given data
+    void saveAll(PlayerDataSet data) throws IOException;
+
+    // Incremental updates. Returning false means the storage cannot persist a single change
+    // on its own and the caller has to fall back to saveAll.
+    default boolean saveObjectiveCompleted(String playerUuid, String worldIdentifier, String key)
+            throws IOException {
+        return false;
+    }
+
+    default boolean saveRestrictionChecked(String playerUuid, String worldIdentifier, String key)
+            throws IOException {
+        return false;
+    }
+
+    default boolean saveCounters(String playerUuid, String worldIdentifier, Map<String, Integer> counters)
+            throws IOException {
+        return false;
+    }
+
+    default boolean deleteWorlds(Set<String> worldIdentifiers) throws IOException {
+        return false;
+    }
+
+    default void close() {
+    }
+}
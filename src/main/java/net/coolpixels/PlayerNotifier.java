@@ -0,0 +1,119 @@
+package net.coolpixels;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Chat notifications that can be triggered by every game event. Warnings are rate-limited per
+// kind, and objective completions of one tick are merged into a single line sent at the end of
+// the tick, followed by queued messages. Every line goes through send, which drops lines identical
+// to one sent within a short window, e.g. the "recorded" line of challenges completed together.
+public class PlayerNotifier {
+    public enum Warning {
+        COMMANDS_ENABLED,
+        RESTRICTIONS_NOT_MET
+    }
+
+    private static final long WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long DEDUPE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_RECENT_MESSAGES = 32;
+
+    private static final class PlayerState {
+        final boolean[] warned = new boolean[Warning.values().length];
+        final long[] lastWarning = new long[Warning.values().length];
+        final Map<String, Long> recentMessages = new HashMap<>();
+        final List<String> completed = new ArrayList<>();
+        final List<Text> queued = new ArrayList<>();
+    }
+
+    private static final Map<UUID, PlayerState> players = new HashMap<>();
+    private static final Set<UUID> pendingPlayers = new LinkedHashSet<>();
+
+    public static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(PlayerNotifier::flush);
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            players.remove(handler.player.getUuid());
+            pendingPlayers.remove(handler.player.getUuid());
+        });
+    }
+
+    // Sends a warning unless the same kind was sent to the player within the last 30 seconds
+    public static void warn(ServerPlayerEntity player, Warning warning, Text message) {
+        PlayerState state = getState(player);
+        long now = System.nanoTime();
+        int kind = warning.ordinal();
+        if (state.warned[kind] && now - state.lastWarning[kind] < WARNING_INTERVAL_NANOS)
+            return;
+
+        state.warned[kind] = true;
+        state.lastWarning[kind] = now;
+        send(player, state, message, now);
+    }
+
+    // Reported at the end of the tick together with other completions of the same tick
+    public static void objectiveCompleted(ServerPlayerEntity player, String label) {
+        PlayerState state = getState(player);
+        state.completed.add(label);
+        pendingPlayers.add(player.getUuid());
+    }
+
+    // Sent at the end of the tick, after the tick's completions
+    public static void queue(ServerPlayerEntity player, Text message) {
+        PlayerState state = getState(player);
+        state.queued.add(message);
+        pendingPlayers.add(player.getUuid());
+    }
+
+    private static PlayerState getState(ServerPlayerEntity player) {
+        return players.computeIfAbsent(player.getUuid(), k -> new PlayerState());
+    }
+
+    // Sends a message unless an identical one was sent to the player within the last 5 seconds
+    private static void send(ServerPlayerEntity player, PlayerState state, Text message, long now) {
+        String key = message.getString();
+        Long lastSent = state.recentMessages.get(key);
+        if (lastSent != null && now - lastSent < DEDUPE_WINDOW_NANOS)
+            return;
+
+        if (state.recentMessages.size() >= MAX_RECENT_MESSAGES) {
+            state.recentMessages.values().removeIf(sentAt -> now - sentAt >= DEDUPE_WINDOW_NANOS);
+        }
+        state.recentMessages.put(key, now);
+        player.sendMessage(message, false);
+    }
+
+    private static void flush(MinecraftServer server) {
+        if (pendingPlayers.isEmpty())
+            return;
+
+        long now = System.nanoTime();
+        for (UUID uuid : pendingPlayers) {
+            PlayerState state = players.get(uuid);
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(uuid);
+            if (state == null)
+                continue;
+            if (player != null) {
+                if (state.completed.size() == 1) {
+                    send(player, state, Text.literal("Objective completed: " + state.completed.get(0))
+                            .formatted(Formatting.GREEN), now);
+                } else if (!state.completed.isEmpty()) {
+                    send(player, state, Text.literal(String.format("%d objectives completed: %s",
+                            state.completed.size(), String.join(", ", state.completed)))
+                            .formatted(Formatting.GREEN), now);
+                }
+                for (Text message : state.queued) {
+                    send(player, state, message, now);
+                }
+            }
+            state.completed.clear();
+            state.queued.clear();
+        }
+        pendingPlayers.clear();
+    }
+}
@@ -0,0 +1,57 @@
+package net.coolpixels;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Sealed progress of past weeks, stored as gzip-compressed player data JSON
+public class ProgressArchive {
+    private static final String ARCHIVE_DIR = "weekly_world_archive";
+
+    public static File getArchiveDir() {
+        return new File(WeeklyWorld.getConfigDir().toFile(), ARCHIVE_DIR);
+    }
+
+    // The data is handed over to the background thread and must not be modified afterwards
+    public static CompletableFuture<Void> archiveAsync(PlayerDataSet data) {
+        File archiveDir = getArchiveDir();
+        return BackgroundTasks.runIO(() -> {
+            try {
+                File file = write(archiveDir, data);
+                WeeklyWorld.LOGGER.info("Archived progress of week {} to {}", data.week, file.getName());
+            } catch (IOException e) {
+                WeeklyWorld.LOGGER.error("Failed to archive progress of week {}", data.week, e);
+            }
+        });
+    }
+
+    static File write(File archiveDir, PlayerDataSet data) throws IOException {
+        archiveDir.mkdirs();
+        int week = data.week;
+
+        // Never overwrite an earlier archive of the same week
+        File file = new File(archiveDir, "week-" + week + ".json.gz");
+        if (file.exists()) {
+            file = new File(archiveDir, "week-" + week + "-" + System.currentTimeMillis() + ".json.gz");
+        }
+
+        File temp = new File(archiveDir, file.getName() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(temp)),
+                StandardCharsets.UTF_8)) {
+            JsonPlayerDataStorage.write(writer, data);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    public static void read(File file, PlayerDataSet data) throws IOException {
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new FileInputStream(file)),
+                StandardCharsets.UTF_8)) {
+            JsonPlayerDataStorage.read(reader, data);
+        }
+    }
+}
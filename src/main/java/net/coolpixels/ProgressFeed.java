@@ -0,0 +1,301 @@
+package net.coolpixels;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Optional Server-Sent Events endpoint (GET /events) for dashboards, enabled with progress_feed.
+// A new client first gets a "snapshot" of the challenges and completion counts, then "progress",
+// "objective" and "challenge" events as they happen, and a new snapshot when the challenge
+// changes. Events are serialized once on the server thread and queued per client; each client is
+// written by its own thread. A client whose queue fills up is disconnected rather than slowing
+// the server down, and gets a fresh snapshot when its EventSource reconnects.
+public class ProgressFeed {
+    private static final int MAX_CLIENTS = 32;
+    private static final int SPARE_THREADS = 4;
+    private static final long KEEPALIVE_SECONDS = 15;
+    private static final Gson GSON = new Gson();
+
+    private static final class Client {
+        final BlockingQueue<String> events;
+        final HttpExchange exchange;
+        volatile boolean closed = false;
+        // Feed thread streaming to the client, null once it is done; guarded by the client
+        Thread thread;
+
+        Client(int buffer, HttpExchange exchange) {
+            events = new ArrayBlockingQueue<>(buffer);
+            this.exchange = exchange;
+            thread = Thread.currentThread();
+        }
+
+        // HttpServer has no write timeout, so a client that stopped reading leaves its thread blocked in
+        // a socket write. Interrupting it closes the socket channel, which ends the write and the
+        // exchange; closing the exchange from here would block on the same stream.
+        synchronized void close() {
+            closed = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        // The thread goes back to the pool, so it must not be interrupted for this client any more
+        void finish() {
+            synchronized (this) {
+                closed = true;
+                thread = null;
+            }
+            Thread.interrupted();
+            exchange.close();
+        }
+    }
+
+    private static final List<Client> clients = new CopyOnWriteArrayList<>();
+    // Connections being streamed, counted before the 200 is sent; clients is only updated later on the server thread
+    private static final AtomicInteger connections = new AtomicInteger();
+
+    // Only changed on the server thread
+    private static HttpServer httpServer = null;
+    private static ExecutorService executor = null;
+    private static volatile MinecraftServer server = null;
+    private static String boundTo = null;
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTED.register(ProgressFeed::update);
+        ServerLifecycleEvents.SERVER_STOPPING.register(s -> stop());
+    }
+
+    // Starts, stops or moves the endpoint to match the config. Must run on the server thread.
+    public static void update(MinecraftServer server) {
+        String address = ServerEnvironmentConfig.isProgressFeedEnabled()
+                ? ServerEnvironmentConfig.getProgressFeedBind() + ":" + ServerEnvironmentConfig.getProgressFeedPort()
+                : null;
+        if (address != null && address.equals(boundTo))
+            return;
+
+        stop();
+        if (address != null) {
+            start(server, address);
+        }
+    }
+
+    private static void start(MinecraftServer server, String address) {
+        // One thread per streamed client plus a few to turn away requests over the limit; further
+        // requests wait in the queue
+        ThreadPoolExecutor service = new ThreadPoolExecutor(MAX_CLIENTS + SPARE_THREADS, MAX_CLIENTS + SPARE_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "Weekly World Progress Feed");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        service.allowCoreThreadTimeOut(true);
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(ServerEnvironmentConfig.getProgressFeedBind(),
+                    ServerEnvironmentConfig.getProgressFeedPort()), 0);
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.error("Failed to start the progress feed on {}", address, e);
+            service.shutdown();
+            return;
+        }
+        ProgressFeed.server = server;
+        executor = service;
+        boundTo = address;
+        httpServer.setExecutor(service);
+        httpServer.createContext("/events", ProgressFeed::handle);
+        httpServer.start();
+        WeeklyWorld.LOGGER.info("Progress feed listening on http://{}/events", address);
+    }
+
+    private static void stop() {
+        if (httpServer == null)
+            return;
+        httpServer.stop(0);
+        for (Client client : clients) {
+            client.close();
+        }
+        clients.clear();
+        executor.shutdownNow();
+        httpServer = null;
+        executor = null;
+        server = null;
+        boundTo = null;
+    }
+
+    // Runs on a feed thread for as long as the client stays connected
+    private static void handle(HttpExchange exchange) throws IOException {
+        MinecraftServer current = server;
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        // Stopping or restarting the feed
+        if (current == null) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        if (connections.incrementAndGet() > MAX_CLIENTS) {
+            connections.decrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        try {
+            stream(exchange, current);
+        } finally {
+            connections.decrementAndGet();
+        }
+    }
+
+    private static void stream(HttpExchange exchange, MinecraftServer current) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(200, 0);
+
+        Client client = new Client(ServerEnvironmentConfig.getProgressFeedBuffer(), exchange);
+        // Events are published on the server thread, so queueing the snapshot there before
+        // subscribing means the client sees every change after it exactly once
+        current.execute(() -> {
+            if (client.closed)
+                return;
+            client.events.offer(event("snapshot", snapshot()));
+            clients.add(client);
+        });
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write("retry: 5000\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            while (!client.closed) {
+                String event = client.events.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                // A comment line keeps proxies from closing the idle connection and detects clients that left
+                out.write((event != null ? event : ": keepalive\n\n").getBytes(StandardCharsets.UTF_8));
+                // Write whatever else is queued before flushing
+                while (!client.closed && (event = client.events.poll()) != null) {
+                    out.write(event.getBytes(StandardCharsets.UTF_8));
+                }
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Client disconnected, was evicted or the feed is stopping
+        } finally {
+            clients.remove(client);
+            client.finish();
+        }
+    }
+
+    private static boolean hasClients() {
+        return !clients.isEmpty();
+    }
+
+    // Must run on the server thread
+    private static void publish(String type, JsonObject data) {
+        String event = event(type, data);
+        for (Client client : clients) {
+            if (!client.events.offer(event)) {
+                WeeklyWorld.LOGGER.debug("Progress feed client fell {} events behind, disconnecting it",
+                        client.events.size());
+                client.close();
+                clients.remove(client);
+            }
+        }
+    }
+
+    private static String event(String type, JsonObject data) {
+        return "event: " + type + "\ndata: " + GSON.toJson(data) + "\n\n";
+    }
+
+    // Must run on the server thread
+    public static void progress(ServerPlayerEntity player, int world, ChallengeDefinition.Objective objective,
+            int progress) {
+        if (!hasClients())
+            return;
+        JsonObject data = playerEvent(player, world, objective.challenge());
+        data.addProperty("objective", objective.key());
+        data.addProperty("progress", Math.min(progress, objective.count()));
+        data.addProperty("count", objective.count());
+        publish("progress", data);
+    }
+
+    // Must run on the server thread, after the completion was marked
+    public static void objectiveCompleted(ServerPlayerEntity player, int world, ChallengeDefinition.Objective objective) {
+        if (!hasClients())
+            return;
+        JsonObject data = playerEvent(player, world, objective.challenge());
+        data.addProperty("objective", objective.key());
+        data.addProperty("completions", ProgressIndex.getObjectiveCompletionCount(objective));
+        publish("objective", data);
+    }
+
+    // Must run on the server thread
+    public static void challengeCompleted(ServerPlayerEntity player, int world, ChallengeDefinition challenge) {
+        if (!hasClients())
+            return;
+        publish("challenge", playerEvent(player, world, challenge));
+    }
+
+    // Must run on the server thread, after the active challenges were replaced
+    public static void challengesChanged() {
+        if (!hasClients())
+            return;
+        publish("snapshot", snapshot());
+    }
+
+    private static JsonObject playerEvent(ServerPlayerEntity player, int world, ChallengeDefinition challenge) {
+        JsonObject data = new JsonObject();
+        data.addProperty("player", player.getUuid().toString());
+        data.addProperty("name", player.getGameProfile().getName());
+        data.addProperty("world", WorldUUIDSync.getWorldIdentifier(world));
+        data.addProperty("challenge", challenge.getId());
+        data.addProperty("week", challenge.getWeek());
+        data.addProperty("time", System.currentTimeMillis());
+        return data;
+    }
+
+    // Challenges, objectives with their completion counts, and the players who finished the weekly challenge
+    private static JsonObject snapshot() {
+        JsonObject data = new JsonObject();
+        data.addProperty("week", ServerChallengeData.getWeek());
+        JsonArray challenges = new JsonArray();
+        for (ChallengeDefinition challenge : ServerChallengeData.getChallenges().getChallenges()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("id", challenge.getId());
+            entry.addProperty("name", ServerChallengeData.formatChallenge(challenge));
+            entry.addProperty("week", challenge.getWeek());
+            JsonArray objectives = new JsonArray();
+            for (ChallengeDefinition.Objective objective : challenge.getObjectives()) {
+                JsonObject item = new JsonObject();
+                item.addProperty("key", objective.key());
+                item.addProperty("label", ServerChallengeData.formatObjective(objective));
+                item.addProperty("count", objective.count());
+                item.addProperty("completions", ProgressIndex.getObjectiveCompletionCount(objective));
+                objectives.add(item);
+            }
+            entry.add("objectives", objectives);
+            challenges.add(entry);
+        }
+        data.add("challenges", challenges);
+        JsonArray finished = new JsonArray();
+        for (UUID playerUuid : ProgressIndex.getFinishedPlayers()) {
+            finished.add(playerUuid.toString());
+        }
+        data.add("finished", finished);
+        data.addProperty("time", System.currentTimeMillis());
+        return data;
+    }
+}
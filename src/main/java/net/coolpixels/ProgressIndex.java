@@ -0,0 +1,102 @@
+package net.coolpixels;
+
+import java.util.*;
+
+// Aggregate counters over ServerPlayerData, updated on every mark so standings can be
+// queried without scanning all player data
+public class ProgressIndex {
+    // Objective key -> number of player/world pairs that completed it
+    private static final Map<String, Integer> objectiveCompletions = new HashMap<>();
+
+    // World handle -> number of objective completions in that world
+    private static int[] worldCompletions = new int[16];
+
+    // Player -> handles of the worlds in which the player completed every objective
+    private static final UuidMap<Set<Integer>> finishedPlayers = new UuidMap<>();
+
+    // Objective keys of the current challenge
+    private static Set<String> requiredKeys = Collections.emptySet();
+
+    // Clears the index; ServerPlayerData then adds every player's completions with addCompletions
+    static void reset(Set<String> objectiveKeys) {
+        objectiveCompletions.clear();
+        Arrays.fill(worldCompletions, 0);
+        finishedPlayers.clear();
+        requiredKeys = Set.copyOf(objectiveKeys);
+    }
+
+    static void addCompletions(UUID playerUuid, int world, Set<String> completed) {
+        for (String key : completed) {
+            objectiveCompletions.merge(key, 1, Integer::sum);
+        }
+        addWorldCompletions(world, completed.size());
+        updateFinished(playerUuid, world, completed);
+    }
+
+    // Called after a new key was added to the player's completed set for the world
+    static void onObjectiveCompleted(UUID playerUuid, int world, String key, Set<String> completed) {
+        objectiveCompletions.merge(key, 1, Integer::sum);
+        addWorldCompletions(world, 1);
+        updateFinished(playerUuid, world, completed);
+    }
+
+    // Called before the player's data for the world is removed
+    static void onWorldRemoved(UUID playerUuid, int world, Set<String> completed) {
+        if (completed != null) {
+            for (String key : completed) {
+                objectiveCompletions.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+            }
+            addWorldCompletions(world, -completed.size());
+        }
+
+        Set<Integer> finishedWorlds = finishedPlayers.get(playerUuid);
+        if (finishedWorlds != null && finishedWorlds.remove(world) && finishedWorlds.isEmpty()) {
+            finishedPlayers.remove(playerUuid);
+        }
+    }
+
+    private static void addWorldCompletions(int world, int amount) {
+        if (world >= worldCompletions.length) {
+            worldCompletions = Arrays.copyOf(worldCompletions, Math.max(world + 1, worldCompletions.length * 2));
+        }
+        worldCompletions[world] = Math.max(0, worldCompletions[world] + amount);
+    }
+
+    private static void updateFinished(UUID playerUuid, int world, Set<String> completed) {
+        if (!requiredKeys.isEmpty() && completed.containsAll(requiredKeys)) {
+            finishedPlayers.computeIfAbsent(playerUuid, HashSet::new).add(world);
+        }
+    }
+
+    public static int getObjectiveCompletionCount(ChallengeDefinition.Objective objective) {
+        ServerPlayerData.loadData();
+        return objectiveCompletions.getOrDefault(objective.key(), 0);
+    }
+
+    public static int getWorldCompletionCount(int world) {
+        ServerPlayerData.loadData();
+        return world < worldCompletions.length ? worldCompletions[world] : 0;
+    }
+
+    public static boolean hasFinished(UUID playerUuid) {
+        ServerPlayerData.loadData();
+        return finishedPlayers.containsKey(playerUuid);
+    }
+
+    // Copies, safe to keep across changes
+    public static Set<UUID> getFinishedPlayers() {
+        ServerPlayerData.loadData();
+        return finishedPlayers.keySet();
+    }
+
+    public static Set<String> getWorldsWithCompletions() {
+        ServerPlayerData.loadData();
+        Set<String> worlds = new HashSet<>();
+        for (int world = 1; world < worldCompletions.length; world++) {
+            if (worldCompletions[world] > 0) {
+                worlds.add(WorldUUIDSync.getWorldIdentifier(world));
+            }
+        }
+        return worlds;
+    }
+}
@@ -0,0 +1,238 @@
+package net.coolpixels;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+// Progress packets for client mods that render the challenge themselves. The challenge is sent
+// once per join or reload, after that only changes: a varint-encoded XOR of the completed
+// objective bitmask and the changed counters. Clients that do not register the channels only
+// get the chat messages, which are sent to everyone either way.
+public class ProgressSync {
+    public static final Identifier CHALLENGE_PACKET = Identifier.of(WeeklyWorld.MOD_ID, "challenge");
+    public static final Identifier PROGRESS_PACKET = Identifier.of(WeeklyWorld.MOD_ID, "progress");
+
+    // Objective labels and target counts of all active challenges, indexed by ordinal; objectives of
+    // additional challenges are labelled with the challenge name. week is the primary challenge's.
+    // revision changes with every new challenge set so clients can drop progress packets meant for
+    // an older one.
+    public record ChallengePayload(int week, int revision, List<String> labels, int[] counts)
+            implements CustomPayload {
+        public static final CustomPayload.Id<ChallengePayload> ID = new CustomPayload.Id<>(CHALLENGE_PACKET);
+        public static final PacketCodec<PacketByteBuf, ChallengePayload> CODEC = PacketCodec.of(
+                (value, buf) -> {
+                    buf.writeVarInt(value.week);
+                    buf.writeVarInt(value.revision);
+                    buf.writeVarInt(value.labels.size());
+                    for (int i = 0; i < value.labels.size(); i++) {
+                        buf.writeString(value.labels.get(i));
+                        buf.writeVarInt(value.counts[i]);
+                    }
+                },
+                buf -> {
+                    int week = buf.readVarInt();
+                    int revision = buf.readVarInt();
+                    int size = buf.readVarInt();
+                    List<String> labels = new ArrayList<>(size);
+                    int[] counts = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        labels.add(buf.readString());
+                        counts[i] = buf.readVarInt();
+                    }
+                    return new ChallengePayload(week, revision, labels, counts);
+                });
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() {
+            return ID;
+        }
+    }
+
+    // completedDelta is XORed into the client's completed bitmask (64 objectives per word);
+    // counterOrdinals/counterValues hold the new progress of count objectives that changed
+    public record ProgressPayload(int revision, long[] completedDelta, int[] counterOrdinals, int[] counterValues)
+            implements CustomPayload {
+        public static final CustomPayload.Id<ProgressPayload> ID = new CustomPayload.Id<>(PROGRESS_PACKET);
+        public static final PacketCodec<PacketByteBuf, ProgressPayload> CODEC = PacketCodec.of(
+                (value, buf) -> {
+                    buf.writeVarInt(value.revision);
+                    buf.writeVarInt(value.completedDelta.length);
+                    for (long word : value.completedDelta) {
+                        buf.writeVarLong(word);
+                    }
+                    buf.writeVarInt(value.counterOrdinals.length);
+                    for (int i = 0; i < value.counterOrdinals.length; i++) {
+                        buf.writeVarInt(value.counterOrdinals[i]);
+                        buf.writeVarInt(value.counterValues[i]);
+                    }
+                },
+                buf -> {
+                    int revision = buf.readVarInt();
+                    long[] delta = new long[buf.readVarInt()];
+                    for (int i = 0; i < delta.length; i++) {
+                        delta[i] = buf.readVarLong();
+                    }
+                    int changed = buf.readVarInt();
+                    int[] ordinals = new int[changed];
+                    int[] values = new int[changed];
+                    for (int i = 0; i < changed; i++) {
+                        ordinals[i] = buf.readVarInt();
+                        values[i] = buf.readVarInt();
+                    }
+                    return new ProgressPayload(revision, delta, ordinals, values);
+                });
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() {
+            return ID;
+        }
+    }
+
+    // What the client of one player has been sent so far
+    private static final class ClientState {
+        final ChallengeSet challenges;
+        final long[] completed;
+        final int[] progress;
+        boolean dirty;
+
+        ClientState(ChallengeSet challenges) {
+            this.challenges = challenges;
+            this.completed = new long[maskWords(challenges)];
+            this.progress = new int[challenges.getObjectives().size()];
+        }
+    }
+
+    private static final Map<UUID, ClientState> clients = new HashMap<>();
+    private static final List<UUID> dirtyClients = new ArrayList<>();
+    private static ChallengeSet revisionChallenges = null;
+    private static int revision = 0;
+
+    public static void register() {
+        PayloadTypeRegistry.playS2C().register(ChallengePayload.ID, ChallengePayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(ProgressPayload.ID, ProgressPayload.CODEC);
+
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            clients.remove(handler.player.getUuid());
+        });
+        ServerTickEvents.END_SERVER_TICK.register(ProgressSync::sendChanges);
+    }
+
+    // Sends the current challenge and schedules the player's full progress for the end of the tick
+    public static void sendChallenge(ServerPlayerEntity player) {
+        if (!ServerPlayNetworking.canSend(player, ChallengePayload.ID))
+            return;
+
+        ChallengeSet challenges = ServerChallengeData.getChallenges();
+        if (challenges != revisionChallenges) {
+            revisionChallenges = challenges;
+            revision++;
+        }
+
+        List<ChallengeDefinition.Objective> objectives = challenges.getObjectives();
+        List<String> labels = new ArrayList<>(objectives.size());
+        int[] counts = new int[objectives.size()];
+        for (ChallengeDefinition.Objective objective : objectives) {
+            String label = ServerChallengeData.formatObjective(objective.type(), objective.content());
+            labels.add(objective.challenge().isPrimary() ? label
+                    : String.format("[%s] %s", ServerChallengeData.formatChallenge(objective.challenge()), label));
+            counts[objective.ordinal()] = objective.count();
+        }
+        ServerPlayNetworking.send(player,
+                new ChallengePayload(challenges.getPrimary().getWeek(), revision, labels, counts));
+
+        // A fresh state makes the next update a delta against nothing, i.e. the full progress
+        ClientState state = new ClientState(challenges);
+        clients.put(player.getUuid(), state);
+        markDirty(state, player.getUuid());
+    }
+
+    // Called when the player's progress may have changed; the update is sent once per tick at most
+    public static void markDirty(ServerPlayerEntity player) {
+        ClientState state = clients.get(player.getUuid());
+        if (state != null) {
+            markDirty(state, player.getUuid());
+        }
+    }
+
+    private static void markDirty(ClientState state, UUID uuid) {
+        if (!state.dirty) {
+            state.dirty = true;
+            dirtyClients.add(uuid);
+        }
+    }
+
+    private static void sendChanges(MinecraftServer server) {
+        if (dirtyClients.isEmpty())
+            return;
+
+        ChallengeSet challenges = ServerChallengeData.getChallenges();
+        for (UUID uuid : dirtyClients) {
+            ClientState state = clients.get(uuid);
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(uuid);
+            if (state == null || player == null)
+                continue;
+            state.dirty = false;
+
+            // After a reload the player gets the new challenge first, see ChallengeReloader
+            if (state.challenges != challenges)
+                continue;
+
+            ProgressPayload payload = diff(player, state);
+            if (payload != null) {
+                ServerPlayNetworking.send(player, payload);
+            }
+        }
+        dirtyClients.clear();
+    }
+
+    // Updates the state to the player's current progress and returns what changed, or null
+    private static ProgressPayload diff(ServerPlayerEntity player, ClientState state) {
+        UUID playerUuid = player.getUuid();
+        int world = WorldUUIDSync.getOrCreateWorldHandle(player.getWorld());
+
+        long[] delta = new long[state.completed.length];
+        boolean changed = false;
+        int[] ordinals = new int[state.progress.length];
+        int[] values = new int[state.progress.length];
+        int counterChanges = 0;
+
+        for (ChallengeDefinition.Objective objective : state.challenges.getObjectives()) {
+            int ordinal = objective.ordinal();
+            boolean completed = ServerPlayerData.isObjectiveCompleted(playerUuid, world, objective.key());
+            boolean sent = (state.completed[ordinal >>> 6] & (1L << ordinal)) != 0;
+            if (completed != sent) {
+                delta[ordinal >>> 6] |= 1L << ordinal;
+                state.completed[ordinal >>> 6] ^= 1L << ordinal;
+                changed = true;
+            }
+
+            if (objective.isCounted()) {
+                int progress = ObjectiveCounters.getProgress(player, world, objective);
+                if (progress != state.progress[ordinal]) {
+                    state.progress[ordinal] = progress;
+                    ordinals[counterChanges] = ordinal;
+                    values[counterChanges] = progress;
+                    counterChanges++;
+                }
+            }
+        }
+
+        if (!changed && counterChanges == 0)
+            return null;
+        return new ProgressPayload(revision, changed ? delta : new long[0],
+                Arrays.copyOf(ordinals, counterChanges), Arrays.copyOf(values, counterChanges));
+    }
+
+    private static int maskWords(ChallengeSet challenges) {
+        return Math.max(1, (challenges.getObjectives().size() + 63) >>> 6);
+    }
+}
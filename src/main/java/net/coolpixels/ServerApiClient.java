@@ -10,6 +10,8 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ServerApiClient {
     private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
@@ -53,43 +55,65 @@ public class ServerApiClient {
     }
 
     public static CompletableFuture<Void> sendCompletionAsync(String playerUuid, int week) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                sendCompletion(playerUuid, week);
-            } catch (Exception e) {
-                handleApiError(playerUuid, week, e);
-            }
-        });
+        return sendCompletionAsync(playerUuid, null, week);
+    }
+
+    // challengeId is null for the primary weekly challenge
+    public static CompletableFuture<Void> sendCompletionAsync(String playerUuid, String challengeId, int week) {
+        return ApiRequestLimiter.submit(ApiRequestLimiter.Priority.COMPLETION,
+                () -> sendCompletion(playerUuid, challengeId, week))
+                .handle((status, e) -> {
+                    if (e != null) {
+                        handleApiError(playerUuid, describeChallenge(challengeId, week), unwrap(e));
+                    }
+                    return null;
+                });
+    }
+
+    private static String describeChallenge(String challengeId, int week) {
+        return challengeId != null ? "challenge " + challengeId + " week " + week : "week " + week;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
 
-    private static void handleApiError(String playerUuid, int week, Exception e) {
-        if (e instanceof java.net.ConnectException ||
+    private static void handleApiError(String playerUuid, String challenge, Throwable e) {
+        if (e instanceof RejectedExecutionException) {
+            WeeklyWorld.LOGGER.error("API request queue full, completion for player {} {} was not sent",
+                    playerUuid, challenge);
+        } else if (e instanceof java.net.ConnectException ||
                 (e.getCause() != null && e.getCause() instanceof java.net.ConnectException)) {
-            WeeklyWorld.LOGGER.warn("Could not connect to API server for player {} week {} - server may be offline: {}",
-                    playerUuid, week, ServerEnvironmentConfig.getApiBase());
+            WeeklyWorld.LOGGER.warn("Could not connect to API server for player {} {} - server may be offline: {}",
+                    playerUuid, challenge, ServerEnvironmentConfig.getApiBase());
         } else if (e.getClass().getSimpleName().contains("TimeoutException")) {
-            WeeklyWorld.LOGGER.warn("API request timed out for player {} week {}", playerUuid, week);
+            WeeklyWorld.LOGGER.warn("API request timed out for player {} {}", playerUuid, challenge);
         } else {
-            WeeklyWorld.LOGGER.error("Failed to send completion to server for player {} week {}",
-                    playerUuid, week, e);
+            WeeklyWorld.LOGGER.error("Failed to send completion to server for player {} {}",
+                    playerUuid, challenge, e);
         }
     }
 
-    private static void sendCompletion(String playerUuid, int week) throws IOException, InterruptedException {
+    private static int sendCompletion(String playerUuid, String challengeId, int week)
+            throws IOException, InterruptedException {
         if (!ServerEnvironmentConfig.isConfigured()) {
             WeeklyWorld.LOGGER.warn("Server environment not configured, skipping completion submission");
-            return;
+            return 0;
         }
 
         String apiBase = ServerEnvironmentConfig.getApiBase();
         String serverSecret = ServerEnvironmentConfig.getServerSecret();
         String apiUrl = apiBase + "/api/challenge/complete";
 
-        WeeklyWorld.LOGGER.debug("Sending completion to API: {} for player {} week {}", apiUrl, playerUuid, week);
+        String challenge = describeChallenge(challengeId, week);
+        WeeklyWorld.LOGGER.debug("Sending completion to API: {} for player {} {}", apiUrl, playerUuid, challenge);
 
         // Create the JSON payload
         JsonObject payload = new JsonObject();
         payload.addProperty("week", week);
+        if (challengeId != null) {
+            payload.addProperty("challenge", challengeId);
+        }
         payload.addProperty("playerUUID", playerUuid);
         payload.addProperty("timestamp", System.currentTimeMillis());
 
@@ -107,11 +131,12 @@ public class ServerApiClient {
         HttpResponse<String> response = executeWithRetryGeneric(request, HttpResponse.BodyHandlers.ofString());
 
         if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            WeeklyWorld.LOGGER.info("Successfully sent completion for player {} week {}", playerUuid, week);
+            WeeklyWorld.LOGGER.info("Successfully sent completion for player {} {}", playerUuid, challenge);
         } else {
-            WeeklyWorld.LOGGER.error("Failed to send completion for player {} week {}: HTTP {} - {}",
-                    playerUuid, week, response.statusCode(), response.body());
+            WeeklyWorld.LOGGER.error("Failed to send completion for player {} {}: HTTP {} - {}",
+                    playerUuid, challenge, response.statusCode(), response.body());
         }
+        return response.statusCode();
     }
 
     private static <T> HttpResponse<T> executeWithRetryGeneric(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
@@ -146,18 +171,46 @@ public class ServerApiClient {
         throw lastException;
     }
 
+    // Response of a challenge fetch; body is null unless the status is 200
+    public record ChallengeResponse(int status, String body, String etag) {
+    }
+
+    // GET /api/challenge/<which> ("current" or "next"). Blocks, so call it off the server thread.
+    // With the ETag of the last response the API answers 304 Not Modified if nothing changed.
+    public static ChallengeResponse fetchChallenge(String which, String etag) throws IOException, InterruptedException {
+        String apiUrl = ServerEnvironmentConfig.getApiBase() + "/api/challenge/" + which;
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl))
+                .header("X-Server-Key", ServerEnvironmentConfig.getServerSecret())
+                .header("User-Agent", "WeeklyWorldChallenge/1.0")
+                .GET()
+                .timeout(Duration.ofSeconds(30));
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+
+        HttpResponse<String> response = executeWithRetry(builder.build(), HttpResponse.BodyHandlers.ofString());
+        WeeklyWorld.LOGGER.debug("Fetched {} challenge: HTTP {}", which, response.statusCode());
+        return new ChallengeResponse(response.statusCode(),
+                response.statusCode() == 200 ? response.body() : null,
+                response.headers().firstValue("ETag").orElse(null));
+    }
+
     public static CompletableFuture<Void> checkPlayerProfileAsync(String playerUuid) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                checkPlayerProfile(playerUuid);
-            } catch (Exception e) {
-                handleProfileCheckError(playerUuid, e);
-            }
-        });
+        return ApiRequestLimiter.submit(ApiRequestLimiter.Priority.PROFILE_CHECK, () -> checkPlayerProfile(playerUuid))
+                .handle((status, e) -> {
+                    if (e != null) {
+                        handleProfileCheckError(playerUuid, unwrap(e));
+                    }
+                    return null;
+                });
     }
 
-    private static void handleProfileCheckError(String playerUuid, Exception e) {
-        if (e instanceof java.net.ConnectException ||
+    private static void handleProfileCheckError(String playerUuid, Throwable e) {
+        if (e instanceof RejectedExecutionException) {
+            // Let the player in rather than kicking them while the API is overloaded
+            WeeklyWorld.LOGGER.warn("API request queue full, skipping profile check for player {}", playerUuid);
+        } else if (e instanceof java.net.ConnectException ||
                 (e.getCause() != null && e.getCause() instanceof java.net.ConnectException)) {
             WeeklyWorld.LOGGER.warn("Could not connect to API server for profile check after {} attempts - server may be offline or firewall blocking connection: {}",
                     MAX_RETRIES, ServerEnvironmentConfig.getApiBase());
@@ -169,10 +222,10 @@ public class ServerApiClient {
         }
     }
 
-    private static void checkPlayerProfile(String playerUuid) throws IOException, InterruptedException {
+    private static int checkPlayerProfile(String playerUuid) throws IOException, InterruptedException {
         if (!ServerEnvironmentConfig.isConfigured()) {
             WeeklyWorld.LOGGER.debug("Server environment not configured, skipping profile check");
-            return;
+            return 0;
         }
 
         String apiBase = ServerEnvironmentConfig.getApiBase();
@@ -204,5 +257,6 @@ public class ServerApiClient {
                     playerUuid, response.statusCode(), response.body());
             ProfileCheckResult.setResult(playerUuid, ProfileCheckResult.Status.ERROR);
         }
+        return response.statusCode();
     }
 }
@@ -1,8 +1,8 @@
 package net.coolpixels;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
-import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.world.World;
 
@@ -11,12 +11,171 @@ import java.util.*;
 
 public class ServerChallengeData {
     private static final String OBJECTIVES_FILE = "weekly_world_objectives.json";
+    private static final String CHALLENGES_DIR = "weekly_world_challenges";
     private static final Gson GSON = new Gson();
 
+    // Parsed challenge files, loaded once instead of on every event
+    private static volatile ChallengeSet challenges = null;
+
+    // Last valid content of each additional challenge file by id, used when an edit breaks it
+    private static final Map<String, Map<String, Object>> lastValidChallenges = new HashMap<>();
+
+    public static ChallengeSet getChallenges() {
+        ChallengeSet current = challenges;
+        if (current == null) {
+            // StartupPreload normally loads it; callers racing the preload wait instead of loading twice
+            synchronized (ServerChallengeData.class) {
+                current = challenges;
+                if (current == null) {
+                    current = prepared(buildChallenges(loadChallengeObjectives()));
+                    challenges = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // The primary (weekly) challenge
+    public static ChallengeDefinition getDefinition() {
+        return getChallenges().getPrimary();
+    }
+
+    // Re-reads the challenge files. Returns false and keeps the current challenges if the objectives
+    // file is missing or invalid, so a half-saved edit never wipes the running challenge. An invalid
+    // additional challenge keeps its previous version.
+    public static synchronized boolean reloadDefinition() {
+        File objectivesFile = getObjectivesFile();
+        if (!objectivesFile.exists()) {
+            WeeklyWorld.LOGGER.error("Could not find objectives file: {}", objectivesFile.getAbsolutePath());
+            return false;
+        }
+
+        try (Reader reader = new FileReader(objectivesFile)) {
+            Map<String, Object> data = GSON.fromJson(reader, new TypeToken<Map<String, Object>>() {
+            }.getType());
+            if (data == null) {
+                throw new JsonParseException("Empty objectives file");
+            }
+            challenges = prepared(buildChallenges(data));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            WeeklyWorld.LOGGER.error("Failed to reload challenge objectives", e);
+            return false;
+        }
+    }
+
+    // Builds a challenge set from objectives that do not come from the objectives file, e.g. fetched
+    // from the API, together with the current additional challenges. It is not made active.
+    public static synchronized ChallengeSet compileChallenges(Map<String, Object> primaryData) {
+        return buildChallenges(primaryData);
+    }
+
+    // Makes a compiled challenge set the active one
+    public static synchronized void setChallenges(ChallengeSet compiled) {
+        challenges = prepared(compiled);
+    }
+
+    // Resolves tag and wildcard objectives when a set is loaded instead of in the first event that
+    // uses it. Without a server there is nothing to resolve against yet, so the set stays lazy.
+    private static ChallengeSet prepared(ChallengeSet set) {
+        if (ObjectivePatterns.canResolve()) {
+            set.prepare();
+        }
+        return set;
+    }
+
+    private static ChallengeSet buildChallenges(Map<String, Object> primaryData) {
+        ChallengeDefinition primary = new ChallengeDefinition(primaryData);
+        int nextOrdinal = primary.getObjectives().size();
+
+        List<ChallengeDefinition> additional = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : loadAdditionalChallenges().entrySet()) {
+            ChallengeDefinition challenge = buildAdditional(entry.getKey(), entry.getValue(), nextOrdinal);
+            if (challenge == null)
+                continue;
+            nextOrdinal += challenge.getObjectives().size();
+            additional.add(challenge);
+        }
+        if (!additional.isEmpty()) {
+            WeeklyWorld.LOGGER.info("Loaded {} additional challenge(s): {}", additional.size(),
+                    additional.stream().map(ChallengeDefinition::getId).toList());
+        }
+        return new ChallengeSet(primary, additional);
+    }
+
+    // A schema error, e.g. a non-string "type", only affects its own file: the previous valid version is
+    // used, or the challenge is left out if there is none
+    private static ChallengeDefinition buildAdditional(String id, Map<String, Object> data, int firstOrdinal) {
+        try {
+            ChallengeDefinition challenge = new ChallengeDefinition(id, data, firstOrdinal);
+            lastValidChallenges.put(id, data);
+            return challenge;
+        } catch (RuntimeException e) {
+            WeeklyWorld.LOGGER.error("Invalid challenge '{}'", id, e);
+        }
+        Map<String, Object> previous = lastValidChallenges.get(id);
+        if (previous == null || previous == data)
+            return null;
+        WeeklyWorld.LOGGER.warn("Keeping the previous version of challenge '{}'", id);
+        return new ChallengeDefinition(id, previous, firstOrdinal);
+    }
+
+    // Reads weekly_world_challenges/*.json, sorted by id. The id is the "id" in the file or the file name.
+    private static Map<String, Map<String, Object>> loadAdditionalChallenges() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        File[] files = getChallengesDir().listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null)
+            return result;
+
+        Set<String> found = new HashSet<>();
+        for (File file : files) {
+            String fileId = file.getName().substring(0, file.getName().length() - ".json".length());
+            Map<String, Object> data = null;
+            try (Reader reader = new FileReader(file)) {
+                data = GSON.fromJson(reader, new TypeToken<Map<String, Object>>() {
+                }.getType());
+                if (data == null) {
+                    throw new JsonParseException("Empty challenge file");
+                }
+            } catch (IOException | RuntimeException e) {
+                WeeklyWorld.LOGGER.error("Failed to load challenge file {}", file.getName(), e);
+            }
+
+            String id = data != null && data.get("id") instanceof String value ? value : fileId;
+            if (!id.matches("[a-z0-9_.-]+")) {
+                WeeklyWorld.LOGGER.error("Invalid challenge id '{}' in {}, use lowercase letters, digits, '_', '.' or '-'",
+                        id, file.getName());
+                continue;
+            }
+            if (!found.add(id)) {
+                WeeklyWorld.LOGGER.error("Duplicate challenge id '{}' in {}, ignoring it", id, file.getName());
+                continue;
+            }
+
+            // Parsed data is only recorded as valid once buildAdditional could build it
+            if (data == null) {
+                if (!lastValidChallenges.containsKey(id))
+                    continue;
+                WeeklyWorld.LOGGER.warn("Keeping the previous version of challenge '{}'", id);
+                data = lastValidChallenges.get(id);
+            }
+            result.put(id, data);
+        }
+        lastValidChallenges.keySet().retainAll(found);
+        return result;
+    }
+
+    public static File getObjectivesFile() {
+        return new File(WeeklyWorld.getConfigDir().toFile(), OBJECTIVES_FILE);
+    }
+
+    public static File getChallengesDir() {
+        return new File(WeeklyWorld.getConfigDir().toFile(), CHALLENGES_DIR);
+    }
+
     // Loads the challenge objectives from the config directory
     public static Map<String, Object> loadChallengeObjectives() {
-        File configDir = FabricLoader.getInstance().getConfigDir().toFile();
-        File objectivesFile = new File(configDir, OBJECTIVES_FILE);
+        File objectivesFile = getObjectivesFile();
 
         if (!objectivesFile.exists()) {
             WeeklyWorld.LOGGER.error("Could not find objectives file: {}", objectivesFile.getAbsolutePath());
@@ -33,32 +192,18 @@ public class ServerChallengeData {
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static List<Map<String, Object>> getObjectives() {
-        Map<String, Object> data = loadChallengeObjectives();
-        if (data.containsKey("tasks")) {
-            Object tasks = data.get("tasks");
-            if (tasks instanceof List<?>) {
-                return (List<Map<String, Object>>) tasks;
-            }
-        }
-        return Collections.emptyList();
+        return getDefinition().getObjectiveMaps();
     }
 
-    @SuppressWarnings("unchecked")
     public static List<Map<String, Object>> getRestrictions() {
-        Map<String, Object> data = loadChallengeObjectives();
-        if (data.containsKey("restrictions")) {
-            Object restrictions = data.get("restrictions");
-            if (restrictions instanceof List<?>) {
-                return (List<Map<String, Object>>) restrictions;
-            }
-        }
-        // Default restriction if none specified
-        return List.of(Map.of("type", "hardcore", "content", "true"));
+        return getDefinition().getRestrictions();
     }
 
     public static String formatObjective(String type, String content) {
+        if (ObjectivePatterns.isPattern(content)) {
+            content = "any " + content;
+        }
         switch (type) {
             case "dimension":
                 switch (content) {
@@ -81,6 +226,16 @@ public class ServerChallengeData {
         }
     }
 
+    public static String formatObjective(ChallengeDefinition.Objective objective) {
+        String text = formatObjective(objective.type(), objective.content());
+        return objective.isCounted() ? String.format("%s (x%d)", text, objective.count()) : text;
+    }
+
+    // Heading for a challenge's objectives
+    public static String formatChallenge(ChallengeDefinition challenge) {
+        return challenge.getName() != null ? challenge.getName() : "Weekly challenge";
+    }
+
     public static String formatRestriction(String type, String content) {
         switch (type) {
             case "hardcore":
@@ -112,7 +267,11 @@ public class ServerChallengeData {
     }
 
     public static boolean areAllRestrictionsMet(ServerPlayerEntity player) {
-        List<Map<String, Object>> restrictions = getRestrictions();
+        return areAllRestrictionsMet(player, getDefinition());
+    }
+
+    public static boolean areAllRestrictionsMet(ServerPlayerEntity player, ChallengeDefinition challenge) {
+        List<Map<String, Object>> restrictions = challenge.getRestrictions();
         for (Map<String, Object> restriction : restrictions) {
             String type = (String) restriction.get("type");
             String content = (String) restriction.get("content");
@@ -124,20 +283,17 @@ public class ServerChallengeData {
     }
 
     public static boolean canCompleteObjectives(ServerPlayerEntity player) {
+        return canCompleteObjectives(player, getDefinition());
+    }
+
+    public static boolean canCompleteObjectives(ServerPlayerEntity player, ChallengeDefinition challenge) {
         // Players can complete objectives if:
         // 1. They are not an operator (permission level < 2)
-        // 2. All restrictions are met
-        return !player.hasPermissionLevel(2) && areAllRestrictionsMet(player);
+        // 2. All restrictions of the challenge are met
+        return !player.hasPermissionLevel(2) && areAllRestrictionsMet(player, challenge);
     }
 
     public static int getWeek() {
-        Map<String, Object> data = loadChallengeObjectives();
-        if (data.containsKey("week")) {
-            Object week = data.get("week");
-            if (week instanceof Number) {
-                return ((Number) week).intValue();
-            }
-        }
-        return 1; // Default to week 1 if not specified
+        return getDefinition().getWeek();
     }
 }
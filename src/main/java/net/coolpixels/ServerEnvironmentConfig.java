@@ -2,7 +2,7 @@ package net.coolpixels;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import net.fabricmc.loader.api.FabricLoader;
+import com.google.gson.JsonParseException;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -10,53 +10,222 @@ import java.nio.file.Path;
 
 public class ServerEnvironmentConfig {
     private static final String CONFIG_FILE = "weekly_world_server_env.json";
-    private static String apiBase = null;
-    private static String serverSecret = null;
-    private static boolean loaded = false;
 
-    public static void loadConfig() {
+    // All values of one version of the config file, replaced as a whole on reload
+    private static final class Settings {
+        String apiBase = null;
+        String serverSecret = null;
+        String playerDataStorage = "json";
+        int apiMaxConcurrency = 16;
+        int apiQueueSize = 256;
+        String apiQueueOverflow = "reject_new";
+        boolean watchConfigFiles = false;
+        boolean auditLog = true;
+        double auditSampleRate = 0.01;
+        boolean fetchChallenges = false;
+        int fetchIntervalMinutes = 15;
+        boolean progressFeed = false;
+        String progressFeedBind = "127.0.0.1";
+        int progressFeedPort = 8765;
+        int progressFeedBuffer = 256;
+    }
+
+    private static volatile Settings settings = new Settings();
+    private static volatile boolean loaded = false;
+
+    // Synchronized so getters called while StartupPreload reads the file wait for it. Only tried
+    // once: a missing or invalid file means defaults until the next reload, so getters on the
+    // tick thread never stat the file again.
+    public static synchronized void loadConfig() {
         if (loaded)
             return;
+        reloadConfig();
+        loaded = true;
+    }
 
+    // Re-reads the config file. Returns false and keeps the current values if it is missing or invalid.
+    public static boolean reloadConfig() {
         try {
-            Path configPath = FabricLoader.getInstance().getConfigDir().resolve(CONFIG_FILE);
+            Path configPath = getConfigPath();
             if (!Files.exists(configPath)) {
                 WeeklyWorld.LOGGER.warn("Server environment config file not found: {}", configPath);
-                return;
+                return false;
             }
 
             String content = Files.readString(configPath);
             JsonObject json = new Gson().fromJson(content, JsonObject.class);
+            if (json == null) {
+                throw new JsonParseException("Empty config file");
+            }
 
+            Settings parsed = new Settings();
             if (json.has("api_base")) {
-                apiBase = json.get("api_base").getAsString();
+                parsed.apiBase = json.get("api_base").getAsString();
             }
             if (json.has("server_secret")) {
-                serverSecret = json.get("server_secret").getAsString();
+                parsed.serverSecret = json.get("server_secret").getAsString();
+            }
+            if (json.has("player_data_storage")) {
+                parsed.playerDataStorage = json.get("player_data_storage").getAsString();
+            }
+            if (json.has("api_max_concurrency")) {
+                parsed.apiMaxConcurrency = Math.max(1, json.get("api_max_concurrency").getAsInt());
+            }
+            if (json.has("api_queue_size")) {
+                parsed.apiQueueSize = Math.max(0, json.get("api_queue_size").getAsInt());
+            }
+            if (json.has("api_queue_overflow")) {
+                parsed.apiQueueOverflow = json.get("api_queue_overflow").getAsString();
+            }
+            if (json.has("watch_config_files")) {
+                parsed.watchConfigFiles = json.get("watch_config_files").getAsBoolean();
+            }
+            if (json.has("audit_log")) {
+                parsed.auditLog = json.get("audit_log").getAsBoolean();
+            }
+            if (json.has("audit_sample_rate")) {
+                parsed.auditSampleRate = Math.min(1, Math.max(0, json.get("audit_sample_rate").getAsDouble()));
+            }
+            if (json.has("fetch_challenges")) {
+                parsed.fetchChallenges = json.get("fetch_challenges").getAsBoolean();
+            }
+            if (json.has("fetch_interval_minutes")) {
+                parsed.fetchIntervalMinutes = Math.max(1, json.get("fetch_interval_minutes").getAsInt());
+            }
+            if (json.has("progress_feed")) {
+                parsed.progressFeed = json.get("progress_feed").getAsBoolean();
+            }
+            if (json.has("progress_feed_bind")) {
+                parsed.progressFeedBind = json.get("progress_feed_bind").getAsString();
+            }
+            if (json.has("progress_feed_port")) {
+                parsed.progressFeedPort = json.get("progress_feed_port").getAsInt();
+            }
+            if (json.has("progress_feed_buffer")) {
+                parsed.progressFeedBuffer = Math.max(1, json.get("progress_feed_buffer").getAsInt());
             }
 
+            settings = parsed;
             loaded = true;
             WeeklyWorld.LOGGER.info("Server environment config loaded successfully");
-        } catch (IOException e) {
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Gson reports malformed JSON and wrongly typed values as runtime exceptions
             WeeklyWorld.LOGGER.error("Failed to load server environment config", e);
+            return false;
         }
     }
 
+    public static Path getConfigPath() {
+        return WeeklyWorld.getConfigDir().resolve(CONFIG_FILE);
+    }
+
     public static String getApiBase() {
         if (!loaded)
             loadConfig();
-        return apiBase;
+        return settings.apiBase;
     }
 
     public static String getServerSecret() {
         if (!loaded)
             loadConfig();
-        return serverSecret;
+        return settings.serverSecret;
+    }
+
+    // Persistence backend for player progress: "json" (default), "binary" or "h2"
+    public static String getPlayerDataStorage() {
+        if (!loaded)
+            loadConfig();
+        return settings.playerDataStorage;
+    }
+
+    // Upper bound for the adaptive number of concurrent API requests
+    public static int getApiMaxConcurrency() {
+        if (!loaded)
+            loadConfig();
+        return settings.apiMaxConcurrency;
+    }
+
+    // API requests waiting for a free slot before the overflow policy applies
+    public static int getApiQueueSize() {
+        if (!loaded)
+            loadConfig();
+        return settings.apiQueueSize;
+    }
+
+    // What happens to requests when the queue is full: "reject_new" (default) or "drop_oldest"
+    public static String getApiQueueOverflow() {
+        if (!loaded)
+            loadConfig();
+        return settings.apiQueueOverflow;
+    }
+
+    // Whether the objectives and this file are reloaded automatically when they change
+    public static boolean isWatchConfigFiles() {
+        if (!loaded)
+            loadConfig();
+        return settings.watchConfigFiles;
+    }
+
+    // Whether player events are written to the audit log in logs/weekly-world
+    public static boolean isAuditLogEnabled() {
+        if (!loaded)
+            loadConfig();
+        return settings.auditLog;
+    }
+
+    // Share of events that match no objective which are still written to the audit log
+    public static double getAuditSampleRate() {
+        if (!loaded)
+            loadConfig();
+        return settings.auditSampleRate;
+    }
+
+    // Whether the current and next challenge are fetched from the API instead of edited by hand
+    public static boolean isFetchChallenges() {
+        if (!loaded)
+            loadConfig();
+        return settings.fetchChallenges;
+    }
+
+    // Minutes between checks of the API for challenge changes
+    public static int getFetchIntervalMinutes() {
+        if (!loaded)
+            loadConfig();
+        return settings.fetchIntervalMinutes;
+    }
+
+    // Whether progress is streamed to dashboards as Server-Sent Events
+    public static boolean isProgressFeedEnabled() {
+        if (!loaded)
+            loadConfig();
+        return settings.progressFeed;
+    }
+
+    // Interface the progress feed listens on, localhost by default
+    public static String getProgressFeedBind() {
+        if (!loaded)
+            loadConfig();
+        return settings.progressFeedBind;
+    }
+
+    public static int getProgressFeedPort() {
+        if (!loaded)
+            loadConfig();
+        return settings.progressFeedPort;
+    }
+
+    // Events a feed client may fall behind by before it is disconnected
+    public static int getProgressFeedBuffer() {
+        if (!loaded)
+            loadConfig();
+        return settings.progressFeedBuffer;
     }
 
     public static boolean isConfigured() {
         if (!loaded)
             loadConfig();
-        return apiBase != null && serverSecret != null;
+        Settings current = settings;
+        return current.apiBase != null && current.serverSecret != null;
     }
 }
@@ -1,26 +1,50 @@
 package net.coolpixels;
 
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 public class ServerEventHandler {
+    // Key under which events of one player, type and value are merged while the state is loading
+    private record DeferredEvent(UUID player, String type, Object value) {
+    }
 
-    public static void handlePlayerJoin(ServerPlayerEntity player) {
-        String playerUuid = player.getUuidAsString();
-        String worldIdentifier = WorldUUIDSync.getOrCreateWorldIdentifier(player.getWorld());
+    public static void handlePlayerJoin(ServerPlayerEntity player, MinecraftServer server) {
+        if (!StartupPreload.isReady()) {
+            StartupPreload.runWhenReady(() -> {
+                if (!player.isRemoved()) {
+                    handlePlayerJoin(player, server);
+                }
+            });
+            return;
+        }
 
-        // Check player profile first - this runs during join process
-        checkPlayerProfile(player, playerUuid, worldIdentifier);
+        long start = TickProfiler.start();
+        try {
+            // Check player profile first - this runs during join process
+            checkPlayerProfile(player, server, player.getUuidAsString());
+        } finally {
+            TickProfiler.end(TickProfiler.Section.PLAYER_JOIN, start);
+        }
     }
 
-    private static void checkPlayerProfile(ServerPlayerEntity player, String playerUuid, String worldIdentifier) {
-        // Start the profile check asynchronously
+    private static void checkPlayerProfile(ServerPlayerEntity player, MinecraftServer server, String playerUuid) {
+        // Start the profile check asynchronously; the result is handled on the server thread,
+        // which owns the player data
         ServerApiClient.checkPlayerProfileAsync(playerUuid)
-                .thenRun(() -> {
+                .thenRunAsync(() -> {
                     // Check the result and send appropriate message
                     ProfileCheckResult.Status status = ProfileCheckResult.getAndRemoveResult(playerUuid);
                     if (status == ProfileCheckResult.Status.NOT_FOUND) {
@@ -36,12 +60,20 @@ public class ServerEventHandler {
                     
                     // Continue with join logic only if profile check didn't result in disconnect
                     if (status != ProfileCheckResult.Status.NOT_FOUND) {
-                        completePlayerJoin(player, playerUuid, worldIdentifier);
+                        long start = TickProfiler.start();
+                        try {
+                            completePlayerJoin(player);
+                        } finally {
+                            TickProfiler.end(TickProfiler.Section.PLAYER_JOIN, start);
+                        }
                     }
-                });
+                }, server);
     }
 
-    private static void completePlayerJoin(ServerPlayerEntity player, String playerUuid, String worldIdentifier) {
+    private static void completePlayerJoin(ServerPlayerEntity player) {
+        UUID playerUuid = player.getUuid();
+        int world = WorldUUIDSync.getOrCreateWorldHandle(player.getWorld());
+
         // Send greeting
         player.sendMessage(
                 Text.literal("Welcome to Weekly World!")
@@ -49,10 +81,13 @@ public class ServerEventHandler {
                 false);
 
         // Display restrictions and check them
-        displayRestrictions(player, playerUuid, worldIdentifier);
+        displayRestrictions(player, playerUuid, world);
 
         // Display objectives
-        displayObjectives(player, playerUuid, worldIdentifier);
+        displayObjectives(player, playerUuid, world);
+
+        // Same challenge for client mods that render it themselves
+        ProgressSync.sendChallenge(player);
 
         // Check if player can complete objectives
         if (!ServerChallengeData.canCompleteObjectives(player)) {
@@ -65,66 +100,269 @@ public class ServerEventHandler {
     }
 
     public static void reportEvent(ServerPlayerEntity player, String type, String value) {
-        String playerUuid = player.getUuidAsString();
-        String worldIdentifier = WorldUUIDSync.getOrCreateWorldIdentifier(player.getWorld());
-
-        WeeklyWorld.LOGGER.info("Player {} reported event {} with value {} in world {} (can complete: {})",
-                player.getName().getString(), type, value, worldIdentifier,
-                ServerChallengeData.canCompleteObjectives(player));
-
-        // Check if event matches an objective
-        List<Map<String, Object>> objectives = ServerChallengeData.getObjectives();
-        for (Map<String, Object> objective : objectives) {
-            if (objective.get("type").equals(type) && objective.get("content").equals(value)) {
-                // Check if already completed
-                if (ServerPlayerData.isObjectiveCompleted(playerUuid, worldIdentifier, type, value)) {
-                    return; // Already completed
+        reportEvent(player, type, value, 1);
+    }
+
+    // Called for every changed player inventory slot, so items outside the challenge are rejected
+    // before any string is built. Only completes boolean objectives; count objectives keep
+    // counting pickups, as a slot change does not tell how many items were gained.
+    public static void reportItemObtained(ServerPlayerEntity player, Item item) {
+        if (!StartupPreload.isReady()) {
+            StartupPreload.runWhenReady(new DeferredEvent(player.getUuid(), "item_slot", item), 0, amount -> {
+                if (!player.isRemoved()) {
+                    reportItemObtained(player, item);
                 }
+            });
+            return;
+        }
+        if (!ServerChallengeData.getChallenges().isObjectiveItem(item))
+            return;
+        reportEvent(player, "item", item.toString(), 0);
+    }
 
-                // Check if player can complete objectives
-                if (ServerChallengeData.canCompleteObjectives(player)) {
-                    // Mark objective as completed
-                    ServerPlayerData.markObjectiveCompleted(playerUuid, worldIdentifier, type, value);
-                    player.sendMessage(
-                            Text.literal(String.format("Objective completed: %s",
-                                    ServerChallengeData.formatObjective(type, value)))
-                                    .formatted(Formatting.GREEN),
-                            false);
-
-                    // Check if all objectives are completed
-                    if (areAllObjectivesCompleted(playerUuid, worldIdentifier)) {
-                        // Send player a congratulatory message
-                        player.sendMessage(
-                                Text.literal("🎉 Congratulations! You have completed all objectives!")
-                                        .formatted(Formatting.GOLD, Formatting.BOLD),
-                                false);
+    // amount is added to count objectives; boolean objectives complete on any matching event
+    public static void reportEvent(ServerPlayerEntity player, String type, String value, int amount) {
+        // Events arriving while the state is still loading are handled once it is in place, with
+        // repeats merged into one event carrying the summed amount
+        if (!StartupPreload.isReady()) {
+            StartupPreload.runWhenReady(new DeferredEvent(player.getUuid(), type, value), amount, total -> {
+                if (!player.isRemoved()) {
+                    reportEvent(player, type, value, total);
+                }
+            });
+            return;
+        }
 
-                        // Log completion on server
-                        WeeklyWorld.LOGGER.info("Player {} completed all objectives for week {} in world {}",
-                                player.getName().getString(), ServerChallengeData.getWeek(), worldIdentifier);
+        long start = TickProfiler.start();
+        try {
+            handleEvent(player, type, value, amount);
+        } finally {
+            TickProfiler.end(TickProfiler.Section.REPORT_EVENT, start);
+        }
+    }
 
-                        // Send completion to server API
-                        ServerApiClient.sendCompletionAsync(playerUuid, ServerChallengeData.getWeek());
+    private static void handleEvent(ServerPlayerEntity player, String type, String value, int amount) {
+        EventRecorder.record(player, type, value, amount);
 
-                        // Inform player of success
-                        player.sendMessage(
-                                Text.literal("✔ Completion recorded successfully!")
-                                        .formatted(Formatting.GREEN),
-                                false);
-                    }
-                } else {
-                    if (player.hasPermissionLevel(2)) {
-                        warnCommandsEnabled(player);
-                    } else {
-                        warnRestrictionsNotMet(player);
-                    }
-                }
+        // One lookup covers every active challenge; most events match nothing, so they are only sampled
+        ChallengeDefinition.Objective[] objectives = ServerChallengeData.getChallenges().findObjectives(type, value);
+        if (objectives == null) {
+            AuditLog.sampleEvent(player, type, value, amount);
+            return;
+        }
+
+        handleObjectiveEvents(new PlayerEventContext(player), objectives, type, value, amount);
+    }
+
+    // Updates progress for an event that matched objectives; shared with EventReplay
+    static void handleObjectiveEvents(EventContext context, ChallengeDefinition.Objective[] objectives, String type,
+            String value, int amount) {
+        for (ChallengeDefinition.Objective objective : objectives) {
+            handleObjectiveEvent(context, objective, type, value, amount);
+        }
+    }
+
+    private static void handleObjectiveEvent(EventContext context, ChallengeDefinition.Objective objective,
+            String type, String value, int amount) {
+        // Events without an amount (inventory slot changes) only complete boolean objectives
+        if (objective.isCounted() && amount <= 0)
+            return;
+
+        UUID playerUuid = context.playerUuid();
+        int world = context.world();
+
+        // Check if already completed
+        if (ServerPlayerData.isObjectiveCompleted(playerUuid, world, objective.key())) {
+            context.onOutcome(objective, type, value, amount, "already_completed");
+            return;
+        }
+
+        // Check if player can complete objectives of this challenge
+        if (!context.canComplete(objective.challenge())) {
+            context.onOutcome(objective, type, value, amount,
+                    context.isOperator() ? "blocked_commands" : "blocked_restrictions");
+            return;
+        }
+
+        // Count objectives only complete on the event that reaches their count
+        if (objective.isCounted()) {
+            boolean reached = ObjectiveCounters.add(playerUuid, world, objective, amount);
+            context.onProgress(objective);
+            if (!reached) {
+                context.onOutcome(objective, type, value, amount, "progress");
                 return;
             }
+            ObjectiveCounters.flush(playerUuid);
         }
+
+        context.onOutcome(objective, type, value, amount, "completed");
+        completeObjective(context, objective);
     }
 
-    private static void displayRestrictions(ServerPlayerEntity player, String playerUuid, String worldIdentifier) {
+    private static void completeObjective(EventContext context, ChallengeDefinition.Objective objective) {
+        // Mark objective as completed
+        ServerPlayerData.markObjectiveCompleted(context.playerUuid(), context.world(), objective.key());
+        context.onObjectiveCompleted(objective);
+
+        // Check if all objectives of the objective's challenge are completed
+        ChallengeDefinition challenge = objective.challenge();
+        if (areAllObjectivesCompleted(context.playerUuid(), context.world(), challenge)) {
+            context.onChallengeCompleted(challenge);
+        }
+    }
+
+    // Events of an online player
+    private static final class PlayerEventContext implements EventContext {
+        private final ServerPlayerEntity player;
+        private final UUID playerUuid;
+        private final int world;
+
+        PlayerEventContext(ServerPlayerEntity player) {
+            this.player = player;
+            this.playerUuid = player.getUuid();
+            this.world = WorldUUIDSync.getOrCreateWorldHandle(player.getWorld());
+        }
+
+        @Override
+        public UUID playerUuid() {
+            return playerUuid;
+        }
+
+        @Override
+        public int world() {
+            return world;
+        }
+
+        @Override
+        public boolean canComplete(ChallengeDefinition challenge) {
+            return ServerChallengeData.canCompleteObjectives(player, challenge);
+        }
+
+        @Override
+        public boolean isOperator() {
+            return player.hasPermissionLevel(2);
+        }
+
+        @Override
+        public void onOutcome(ChallengeDefinition.Objective objective, String type, String value, int amount,
+                String outcome) {
+            AuditLog.event(player, world, type, value, amount, outcome);
+            if (outcome.equals("blocked_commands")) {
+                warnCommandsEnabled(player);
+            } else if (outcome.equals("blocked_restrictions")) {
+                warnRestrictionsNotMet(player);
+            }
+        }
+
+        @Override
+        public void onProgress(ChallengeDefinition.Objective objective) {
+            ProgressSync.markDirty(player);
+            ProgressFeed.progress(player, world, objective, ObjectiveCounters.getProgress(player, world, objective));
+        }
+
+        @Override
+        public void onObjectiveCompleted(ChallengeDefinition.Objective objective) {
+            ProgressSync.markDirty(player);
+            PlayerNotifier.objectiveCompleted(player, ServerChallengeData.formatObjective(objective));
+            ProgressFeed.objectiveCompleted(player, world, objective);
+        }
+
+        @Override
+        public void onChallengeCompleted(ChallengeDefinition challenge) {
+            onAllObjectivesCompleted(player, playerUuid, world, challenge);
+            ProgressFeed.challengeCompleted(player, world, challenge);
+        }
+    }
+
+    private static void onAllObjectivesCompleted(ServerPlayerEntity player, UUID playerUuid, int world,
+            ChallengeDefinition challenge) {
+        // Send player a congratulatory message, after the completion line of this tick
+        PlayerNotifier.queue(player,
+                Text.literal(challenge.isPrimary()
+                        ? "🎉 Congratulations! You have completed all objectives!"
+                        : String.format("🎉 Congratulations! You have completed all objectives of %s!",
+                                ServerChallengeData.formatChallenge(challenge)))
+                        .formatted(Formatting.GOLD, Formatting.BOLD));
+
+        // Log completion on server
+        if (challenge.isPrimary()) {
+            WeeklyWorld.LOGGER.info("Player {} completed all objectives for week {} in world {}",
+                    player.getName().getString(), challenge.getWeek(), WorldUUIDSync.getWorldIdentifier(world));
+        } else {
+            WeeklyWorld.LOGGER.info("Player {} completed all objectives of challenge {} for week {} in world {}",
+                    player.getName().getString(), challenge.getId(), challenge.getWeek(),
+                    WorldUUIDSync.getWorldIdentifier(world));
+        }
+        AuditLog.completion(player, world, challenge, "all_completed");
+
+        // Send completion to server API, one submission per challenge
+        ServerApiClient.sendCompletionAsync(playerUuid.toString(), challenge.isPrimary() ? null : challenge.getId(),
+                challenge.getWeek());
+
+        // Inform player of success
+        PlayerNotifier.queue(player,
+                Text.literal("✔ Completion recorded successfully!")
+                        .formatted(Formatting.GREEN));
+    }
+
+    // Runs after the challenges were reloaded: shows the updated challenges and completes objectives the
+    // player already satisfies under them, i.e. held objective items and counts that were lowered.
+    // wasFinished tells whether the player had finished the primary challenge before the reload, so a
+    // challenge that shrank to what the player already completed is announced once.
+    public static void reevaluatePlayer(ServerPlayerEntity player, boolean wasFinished) {
+        UUID playerUuid = player.getUuid();
+        int world = WorldUUIDSync.getOrCreateWorldHandle(player.getWorld());
+        ChallengeSet challenges = ServerChallengeData.getChallenges();
+        ChallengeDefinition definition = challenges.getPrimary();
+
+        player.sendMessage(
+                Text.literal("The weekly challenge has been updated.")
+                        .formatted(Formatting.GOLD, Formatting.BOLD),
+                false);
+        displayRestrictions(player, playerUuid, world);
+        displayObjectives(player, playerUuid, world);
+        ProgressSync.sendChallenge(player);
+
+        // Item objectives the inventory satisfies, including tag and wildcard objectives
+        Set<ChallengeDefinition.Objective> heldObjectives = new HashSet<>();
+        PlayerInventory inventory = player.getInventory();
+        for (int slot = 0; slot < inventory.size(); slot++) {
+            ItemStack stack = inventory.getStack(slot);
+            if (!stack.isEmpty() && challenges.isObjectiveItem(stack.getItem())) {
+                ChallengeDefinition.Objective[] matched = challenges.findObjectives("item", stack.getItem().toString());
+                if (matched != null) {
+                    Collections.addAll(heldObjectives, matched);
+                }
+            }
+        }
+
+        PlayerEventContext context = new PlayerEventContext(player);
+        boolean completedAny = false;
+        Map<ChallengeDefinition, Boolean> allowed = new HashMap<>();
+        for (ChallengeDefinition.Objective objective : challenges.getObjectives()) {
+            if (ServerPlayerData.isObjectiveCompleted(playerUuid, world, objective.key()))
+                continue;
+            if (!allowed.computeIfAbsent(objective.challenge(),
+                    challenge -> ServerChallengeData.canCompleteObjectives(player, challenge)))
+                continue;
+
+            boolean satisfied = objective.isCounted()
+                    ? ObjectiveCounters.getProgress(player, world, objective) >= objective.count()
+                    : heldObjectives.contains(objective);
+            if (satisfied) {
+                completeObjective(context, objective);
+                completedAny = true;
+            }
+        }
+
+        if (!completedAny && !wasFinished && !definition.getObjectives().isEmpty()
+                && ServerChallengeData.canCompleteObjectives(player, definition)
+                && areAllObjectivesCompleted(playerUuid, world, definition)) {
+            onAllObjectivesCompleted(player, playerUuid, world, definition);
+        }
+    }
+
+    private static void displayRestrictions(ServerPlayerEntity player, UUID playerUuid, int world) {
         List<Map<String, Object>> restrictions = ServerChallengeData.getRestrictions();
 
         if (!restrictions.isEmpty()) {
@@ -153,37 +391,46 @@ public class ServerEventHandler {
         }
     }
 
-    private static void displayObjectives(ServerPlayerEntity player, String playerUuid, String worldIdentifier) {
-        List<Map<String, Object>> objectives = ServerChallengeData.getObjectives();
+    private static void displayObjectives(ServerPlayerEntity player, UUID playerUuid, int world) {
+        List<ChallengeDefinition> challenges = ServerChallengeData.getChallenges().getChallenges();
+        for (ChallengeDefinition challenge : challenges) {
+            List<ChallengeDefinition.Objective> objectives = challenge.getObjectives();
+            if (challenge.isPrimary()) {
+                displayObjectives(player, playerUuid, world,
+                        String.format("Objective%s:", objectives.size() == 1 ? "" : "s"), objectives);
+            } else {
+                displayObjectives(player, playerUuid, world,
+                        String.format("%s:", ServerChallengeData.formatChallenge(challenge)), objectives);
+            }
+        }
+    }
 
+    private static void displayObjectives(ServerPlayerEntity player, UUID playerUuid, int world, String heading,
+            List<ChallengeDefinition.Objective> objectives) {
         if (!objectives.isEmpty()) {
-            player.sendMessage(
-                    Text.literal(String.format("Objective%s:", objectives.size() == 1 ? "" : "s"))
-                            .formatted(Formatting.BOLD),
-                    false);
+            player.sendMessage(Text.literal(heading).formatted(Formatting.BOLD), false);
 
-            for (Map<String, Object> objective : objectives) {
-                String type = (String) objective.get("type");
-                String content = (String) objective.get("content");
-                boolean completed = ServerPlayerData.isObjectiveCompleted(playerUuid, worldIdentifier, type, content);
+            for (ChallengeDefinition.Objective objective : objectives) {
+                boolean completed = ServerPlayerData.isObjectiveCompleted(playerUuid, world, objective.key());
+
+                String text = ServerChallengeData.formatObjective(objective);
+                if (objective.isCounted() && !completed) {
+                    text = String.format("%s - %d/%d", text,
+                            ObjectiveCounters.getProgress(player, world, objective), objective.count());
+                }
 
                 player.sendMessage(
                         Text.literal(String.format("%s %s",
                                 completed ? "☑" : "☐",
-                                ServerChallengeData.formatObjective(type, content))),
+                                text)),
                         false);
             }
         }
     }
 
-    private static boolean areAllObjectivesCompleted(String playerUuid, String worldIdentifier) {
-        List<Map<String, Object>> objectives = ServerChallengeData.getObjectives();
-
-        for (Map<String, Object> objective : objectives) {
-            String type = (String) objective.get("type");
-            String content = (String) objective.get("content");
-
-            if (!ServerPlayerData.isObjectiveCompleted(playerUuid, worldIdentifier, type, content)) {
+    private static boolean areAllObjectivesCompleted(UUID playerUuid, int world, ChallengeDefinition challenge) {
+        for (ChallengeDefinition.Objective objective : challenge.getObjectives()) {
+            if (!ServerPlayerData.isObjectiveCompleted(playerUuid, world, objective.key())) {
                 return false;
             }
         }
@@ -192,16 +439,14 @@ public class ServerEventHandler {
     }
 
     private static void warnCommandsEnabled(ServerPlayerEntity player) {
-        player.sendMessage(
+        PlayerNotifier.warn(player, PlayerNotifier.Warning.COMMANDS_ENABLED,
                 Text.literal("Objectives cannot be completed while commands are enabled.")
-                        .formatted(Formatting.RED),
-                false);
+                        .formatted(Formatting.RED));
     }
 
     private static void warnRestrictionsNotMet(ServerPlayerEntity player) {
-        player.sendMessage(
+        PlayerNotifier.warn(player, PlayerNotifier.Warning.RESTRICTIONS_NOT_MET,
                 Text.literal("Some restrictions are not met. Objectives cannot be completed until they are.")
-                        .formatted(Formatting.RED),
-                false);
+                        .formatted(Formatting.RED));
     }
 }
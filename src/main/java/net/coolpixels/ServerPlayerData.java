@@ -1,89 +1,408 @@
 package net.coolpixels;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import net.fabricmc.loader.api.FabricLoader;
-import net.minecraft.server.MinecraftServer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class ServerPlayerData {
     private static final String PLAYER_DATA_FILE = "weekly_world_player_data.json";
-    private static final Gson GSON = new Gson();
+    private static final String PLAYER_DATA_SNAPSHOT_FILE = "weekly_world_player_data.bin";
+    private static final String PLAYER_DATA_DATABASE = "weekly_world_player_data";
+    private static final List<String> STORAGE_NAMES = List.of("json", "binary", "h2");
+
+    // Progress of one player in one world. Sets are only allocated once something is stored.
+    private static final class WorldProgress {
+        Set<String> objectives = null;
+        Set<String> restrictions = null;
+        Map<String, Integer> counters = null;
+
+        boolean isEmpty() {
+            return objectives == null && restrictions == null && counters == null;
+        }
+    }
+
+    // Worlds of one player, keyed by world handle. Players rarely have more than a few worlds,
+    // so lookups scan the handles.
+    private static final class PlayerProgress {
+        int[] worlds = new int[2];
+        WorldProgress[] progress = new WorldProgress[2];
+        int size = 0;
+
+        WorldProgress get(int world) {
+            for (int i = 0; i < size; i++) {
+                if (worlds[i] == world)
+                    return progress[i];
+            }
+            return null;
+        }
+
+        WorldProgress getOrCreate(int world) {
+            WorldProgress existing = get(world);
+            if (existing != null)
+                return existing;
+            if (size == worlds.length) {
+                worlds = Arrays.copyOf(worlds, size * 2);
+                progress = Arrays.copyOf(progress, size * 2);
+            }
+            worlds[size] = world;
+            progress[size] = new WorldProgress();
+            return progress[size++];
+        }
+
+        void remove(int world) {
+            for (int i = 0; i < size; i++) {
+                if (worlds[i] == world) {
+                    size--;
+                    worlds[i] = worlds[size];
+                    progress[i] = progress[size];
+                    progress[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Challenge week of the in-memory progress; earlier weeks are archived by ProgressArchive
+    private static int week = 0;
+
+    // Progress of the current week, keyed by player UUID and world handle. Identifier strings
+    // are only produced when the data is handed to a storage as a PlayerDataSet.
+    private static final UuidMap<PlayerProgress> players = new UuidMap<>();
 
-    // Map: PlayerUUID -> WorldIdentifier -> Set of completed objective keys
-    private static final Map<String, Map<String, Set<String>>> playerObjectiveCompletions = new HashMap<>();
+    // Loaded entries whose player key is not a UUID, kept as they are so saving does not drop them
+    private static PlayerDataSet unparsed = new PlayerDataSet();
 
-    // Map: PlayerUUID -> WorldIdentifier -> Set of checked restrictions
-    private static final Map<String, Map<String, Set<String>>> playerRestrictionChecks = new HashMap<>();
+    // Map: World handle -> players with any data in that world (reverse index for cleanup)
+    private static final Map<Integer, Set<UUID>> worldPlayers = new HashMap<>();
 
     private static boolean dataLoaded = false;
 
+    // Set when in-memory changes have not been persisted by the storage yet
+    private static boolean dirty = false;
+
+    private static PlayerDataStorage storage = null;
+
+    // Last background save; synchronous saves wait for it so older data never overwrites newer
+    private static CompletableFuture<Void> pendingSave = null;
+
+    public static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> saveIfDirty());
+    }
+
+    // Loads the data on first use, unless StartupPreload is already loading it
     public static void loadData() {
         if (dataLoaded)
             return;
+        if (StartupPreload.awaitLoaded() && dataLoaded)
+            return;
+
+        install(readStorage());
+    }
+
+    // Opens the configured storage and reads it, or imports data from another storage. Does not
+    // touch the in-memory state, so it can run on any thread.
+    static PlayerDataSet readStorage() {
+        PlayerDataStorage opened = createStorage(ServerEnvironmentConfig.getPlayerDataStorage());
+        PlayerDataSet loaded = new PlayerDataSet();
+        try {
+            if (opened.exists()) {
+                opened.load(loaded);
+            } else {
+                migrateFromOtherStorage(opened, loaded);
+            }
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.error("Failed to load player data", e);
+        }
+        storage = opened;
+        return loaded;
+    }
+
+    // Replaces the in-memory state with the loaded data. Runs on the server thread, or on the
+    // preload thread before the readiness gate opens.
+    static void install(PlayerDataSet loaded) {
+        fromDataSet(loaded);
+        dataLoaded = true;
+        if (!rollOverWeek(ServerChallengeData.getWeek())) {
+            rebuildProgressIndex();
+        }
+    }
+
+    // Archives the in-memory progress and starts the new week when the challenge week changed. Only
+    // the progress of additional challenges that are still running is kept.
+    public static void checkWeekRollover() {
+        loadData();
+        rollOverWeek(ServerChallengeData.getWeek());
+    }
+
+    private static boolean rollOverWeek(int currentWeek) {
+        if (week == currentWeek)
+            return false;
+
+        if (week == 0) {
+            // Data written before weeks were tracked is assumed to belong to the current week
+            week = currentWeek;
+            saveDataAsync();
+            return false;
+        }
+
+        WeeklyWorld.LOGGER.info("Challenge week changed from {} to {}, sealing previous progress", week,
+                currentWeek);
+        // Online count progress belongs to the week being sealed, and is reloaded empty afterwards
+        ObjectiveCounters.flushAll();
+        PlayerDataSet sealed = toDataSet();
+
+        // Additional challenges have their own weeks in their keys and keep running across the
+        // weekly rollover, so their progress is carried over instead of sealed
+        Set<String> runningKeys = new HashSet<>();
+        for (ChallengeDefinition challenge : ServerChallengeData.getChallenges().getChallenges()) {
+            if (!challenge.isPrimary()) {
+                for (ChallengeDefinition.Objective objective : challenge.getObjectives()) {
+                    runningKeys.add(objective.key());
+                }
+            }
+        }
+        PlayerDataSet carried = new PlayerDataSet();
+        carryObjectives(sealed.objectives, carried.objectives, runningKeys);
+        carryCounters(sealed.counters, carried.counters, runningKeys);
+        if (!sealed.isEmpty()) {
+            ProgressArchive.archiveAsync(sealed);
+        }
+
+        fromDataSet(carried);
+        week = currentWeek;
+
+        // Queued after the archive on the IO thread, so the old data is sealed before it is replaced
+        saveDataAsync();
+        rebuildProgressIndex();
+        return true;
+    }
+
+    // Recomputes the aggregate counters, e.g. after the challenge objectives changed
+    public static void rebuildProgressIndex() {
+        loadData();
+        Set<String> objectiveKeys = new HashSet<>();
+        for (ChallengeDefinition.Objective objective : ServerChallengeData.getDefinition().getObjectives()) {
+            objectiveKeys.add(objective.key());
+        }
+        ProgressIndex.reset(objectiveKeys);
+        players.forEach((playerUuid, player) -> {
+            for (int i = 0; i < player.size; i++) {
+                if (player.progress[i].objectives != null) {
+                    ProgressIndex.addCompletions(playerUuid, player.worlds[i], player.progress[i].objectives);
+                }
+            }
+        });
+    }
 
-        File file = getDataFile();
-        playerObjectiveCompletions.clear();
-        playerRestrictionChecks.clear();
-
-        if (file.exists()) {
-            try (Reader reader = new FileReader(file)) {
-                Map<String, Object> data = GSON.fromJson(reader, new TypeToken<Map<String, Object>>() {
-                }.getType());
-                if (data != null) {
-                    // Load objective completions
-                    if (data.containsKey("objectives")) {
-                        Map<String, Map<String, Set<String>>> objectives = GSON.fromJson(
-                                GSON.toJson(data.get("objectives")),
-                                new TypeToken<Map<String, Map<String, Set<String>>>>() {
-                                }.getType());
-                        if (objectives != null) {
-                            playerObjectiveCompletions.putAll(objectives);
-                        }
+    // Moves the completions whose key is in keys from one data set's objectives to another's
+    private static void carryObjectives(Map<String, Map<String, Set<String>>> from,
+            Map<String, Map<String, Set<String>>> to, Set<String> keys) {
+        for (Iterator<Map.Entry<String, Map<String, Set<String>>>> players = from.entrySet().iterator(); players.hasNext();) {
+            Map.Entry<String, Map<String, Set<String>>> player = players.next();
+            for (Iterator<Map.Entry<String, Set<String>>> worlds = player.getValue().entrySet().iterator(); worlds.hasNext();) {
+                Map.Entry<String, Set<String>> world = worlds.next();
+                for (Iterator<String> it = world.getValue().iterator(); it.hasNext();) {
+                    String key = it.next();
+                    if (keys.contains(key)) {
+                        to.computeIfAbsent(player.getKey(), k -> new HashMap<>())
+                                .computeIfAbsent(world.getKey(), k -> new HashSet<>()).add(key);
+                        it.remove();
                     }
+                }
+                if (world.getValue().isEmpty()) {
+                    worlds.remove();
+                }
+            }
+            if (player.getValue().isEmpty()) {
+                players.remove();
+            }
+        }
+    }
 
-                    // Load restriction checks
-                    if (data.containsKey("restrictions")) {
-                        Map<String, Map<String, Set<String>>> restrictions = GSON.fromJson(
-                                GSON.toJson(data.get("restrictions")),
-                                new TypeToken<Map<String, Map<String, Set<String>>>>() {
-                                }.getType());
-                        if (restrictions != null) {
-                            playerRestrictionChecks.putAll(restrictions);
-                        }
+    // Same as carryObjectives for count objective progress
+    private static void carryCounters(Map<String, Map<String, Map<String, Integer>>> from,
+            Map<String, Map<String, Map<String, Integer>>> to, Set<String> keys) {
+        for (Iterator<Map.Entry<String, Map<String, Map<String, Integer>>>> players = from.entrySet().iterator(); players.hasNext();) {
+            Map.Entry<String, Map<String, Map<String, Integer>>> player = players.next();
+            for (Iterator<Map.Entry<String, Map<String, Integer>>> worlds = player.getValue().entrySet().iterator(); worlds.hasNext();) {
+                Map.Entry<String, Map<String, Integer>> world = worlds.next();
+                for (Iterator<Map.Entry<String, Integer>> it = world.getValue().entrySet().iterator(); it.hasNext();) {
+                    Map.Entry<String, Integer> counter = it.next();
+                    if (keys.contains(counter.getKey())) {
+                        to.computeIfAbsent(player.getKey(), k -> new HashMap<>())
+                                .computeIfAbsent(world.getKey(), k -> new HashMap<>())
+                                .put(counter.getKey(), counter.getValue());
+                        it.remove();
                     }
                 }
-            } catch (IOException e) {
-                WeeklyWorld.LOGGER.error("Failed to load player data", e);
+                if (world.getValue().isEmpty()) {
+                    worlds.remove();
+                }
+            }
+            if (player.getValue().isEmpty()) {
+                players.remove();
             }
         }
+    }
 
-        dataLoaded = true;
+    // Replaces the in-memory progress with the data set's; the set is not used afterwards
+    private static void fromDataSet(PlayerDataSet source) {
+        week = source.week;
+        players.clear();
+        worldPlayers.clear();
+        unparsed = new PlayerDataSet();
+
+        for (Map.Entry<String, Map<String, Set<String>>> player : source.objectives.entrySet()) {
+            for (Map.Entry<String, Set<String>> world : player.getValue().entrySet()) {
+                WorldProgress progress = importWorld(player.getKey(), world.getKey());
+                if (progress != null) {
+                    progress.objectives = world.getValue();
+                } else {
+                    unparsed.objectives.computeIfAbsent(player.getKey(), k -> new HashMap<>())
+                            .put(world.getKey(), world.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, Map<String, Set<String>>> player : source.restrictions.entrySet()) {
+            for (Map.Entry<String, Set<String>> world : player.getValue().entrySet()) {
+                WorldProgress progress = importWorld(player.getKey(), world.getKey());
+                if (progress != null) {
+                    progress.restrictions = world.getValue();
+                } else {
+                    unparsed.restrictions.computeIfAbsent(player.getKey(), k -> new HashMap<>())
+                            .put(world.getKey(), world.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, Map<String, Map<String, Integer>>> player : source.counters.entrySet()) {
+            for (Map.Entry<String, Map<String, Integer>> world : player.getValue().entrySet()) {
+                WorldProgress progress = importWorld(player.getKey(), world.getKey());
+                if (progress != null) {
+                    progress.counters = world.getValue();
+                } else {
+                    unparsed.counters.computeIfAbsent(player.getKey(), k -> new HashMap<>())
+                            .put(world.getKey(), world.getValue());
+                }
+            }
+        }
+
+        if (!unparsed.isEmpty()) {
+            WeeklyWorld.LOGGER.warn("Player data contains {} entries that are not player UUIDs, keeping them as is",
+                    unparsed.objectives.size() + unparsed.restrictions.size() + unparsed.counters.size());
+        }
+    }
+
+    // Returns null when the player key is not a UUID
+    private static WorldProgress importWorld(String playerKey, String worldIdentifier) {
+        UUID playerUuid;
+        try {
+            playerUuid = UUID.fromString(playerKey);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int world = WorldUUIDSync.getWorldHandle(worldIdentifier);
+        worldPlayers.computeIfAbsent(world, k -> new HashSet<>()).add(playerUuid);
+        return players.computeIfAbsent(playerUuid, PlayerProgress::new).getOrCreate(world);
+    }
+
+    // Copy of the in-memory progress in the string-keyed form storages persist
+    private static PlayerDataSet toDataSet() {
+        PlayerDataSet copy = new PlayerDataSet(week, deepCopy(unparsed.objectives), deepCopy(unparsed.restrictions),
+                deepCopyCounters(unparsed.counters));
+        players.forEach((playerUuid, player) -> {
+            String playerKey = playerUuid.toString();
+            for (int i = 0; i < player.size; i++) {
+                String worldIdentifier = WorldUUIDSync.getWorldIdentifier(player.worlds[i]);
+                WorldProgress progress = player.progress[i];
+                if (progress.objectives != null) {
+                    copy.objectives.computeIfAbsent(playerKey, k -> new HashMap<>())
+                            .put(worldIdentifier, new HashSet<>(progress.objectives));
+                }
+                if (progress.restrictions != null) {
+                    copy.restrictions.computeIfAbsent(playerKey, k -> new HashMap<>())
+                            .put(worldIdentifier, new HashSet<>(progress.restrictions));
+                }
+                if (progress.counters != null) {
+                    copy.counters.computeIfAbsent(playerKey, k -> new HashMap<>())
+                            .put(worldIdentifier, new HashMap<>(progress.counters));
+                }
+            }
+        });
+        return copy;
+    }
+
+    // One-shot import when the configured storage is empty but data exists in another format
+    private static void migrateFromOtherStorage(PlayerDataStorage target, PlayerDataSet data) throws IOException {
+        for (String name : STORAGE_NAMES) {
+            if (name.equals(target.getName()))
+                continue;
+
+            PlayerDataStorage source = createStorage(name);
+            if (!source.exists())
+                continue;
+
+            try {
+                source.load(data);
+            } finally {
+                source.close();
+            }
+            target.saveAll(data);
+            WeeklyWorld.LOGGER.info("Migrated player data from {} storage to {} storage",
+                    source.getName(), target.getName());
+            return;
+        }
     }
 
     public static void saveData() {
-        File file = getDataFile();
-        file.getParentFile().mkdirs();
+        if (!dataLoaded || !dirty)
+            return;
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("objectives", playerObjectiveCompletions);
-        data.put("restrictions", playerRestrictionChecks);
+        long start = TickProfiler.start();
+        try {
+            if (pendingSave != null) {
+                pendingSave.join();
+                pendingSave = null;
+            }
 
-        try (Writer writer = new FileWriter(file)) {
-            GSON.toJson(data, writer);
+            storage.saveAll(toDataSet());
+            dirty = false;
         } catch (IOException e) {
             WeeklyWorld.LOGGER.error("Failed to save player data", e);
+        } finally {
+            TickProfiler.end(TickProfiler.Section.SAVE_DATA, start);
         }
     }
 
-    private static File getDataFile() {
-        File configDir = FabricLoader.getInstance().getConfigDir().toFile();
-        return new File(configDir, PLAYER_DATA_FILE);
+    // Saves pending changes and releases the storage; the next access reloads it
+    public static void close() {
+        if (!dataLoaded)
+            return;
+
+        saveData();
+        BackgroundTasks.awaitPending();
+        storage.close();
+        storage = null;
+        dataLoaded = false;
     }
 
-    private static String getObjectiveKey(String type, String content) {
+    private static PlayerDataStorage createStorage(String name) {
+        File configDir = WeeklyWorld.getConfigDir().toFile();
+        switch (name) {
+            case "binary":
+                return new SnapshotPlayerDataStorage(new File(configDir, PLAYER_DATA_SNAPSHOT_FILE));
+            case "h2":
+                return new H2PlayerDataStorage(new File(configDir, PLAYER_DATA_DATABASE));
+            case "json":
+                return new JsonPlayerDataStorage(new File(configDir, PLAYER_DATA_FILE));
+            default:
+                WeeklyWorld.LOGGER.warn("Unknown player data storage '{}', using json", name);
+                return new JsonPlayerDataStorage(new File(configDir, PLAYER_DATA_FILE));
+        }
+    }
+
+    static String getObjectiveKey(String type, String content) {
         return type + "|" + content;
     }
 
@@ -91,94 +410,224 @@ public class ServerPlayerData {
         return type + "|" + content;
     }
 
-    public static boolean isObjectiveCompleted(String playerUuid, String worldIdentifier, String type, String content) {
-        loadData();
-        Map<String, Set<String>> playerWorlds = playerObjectiveCompletions.get(playerUuid);
-        if (playerWorlds == null)
-            return false;
+    private static WorldProgress getProgress(UUID playerUuid, int world) {
+        PlayerProgress player = players.get(playerUuid);
+        return player != null ? player.get(world) : null;
+    }
 
-        Set<String> completedObjectives = playerWorlds.get(worldIdentifier);
-        if (completedObjectives == null)
-            return false;
+    private static WorldProgress getOrCreateProgress(UUID playerUuid, int world) {
+        WorldProgress progress = players.computeIfAbsent(playerUuid, PlayerProgress::new).getOrCreate(world);
+        if (progress.isEmpty()) {
+            worldPlayers.computeIfAbsent(world, k -> new HashSet<>()).add(playerUuid);
+        }
+        return progress;
+    }
 
-        return completedObjectives.contains(getObjectiveKey(type, content));
+    // world is a handle from WorldUUIDSync, objectiveKey an Objective.key()
+    public static boolean isObjectiveCompleted(UUID playerUuid, int world, String objectiveKey) {
+        loadData();
+        WorldProgress progress = getProgress(playerUuid, world);
+        return progress != null && progress.objectives != null && progress.objectives.contains(objectiveKey);
     }
 
-    public static void markObjectiveCompleted(String playerUuid, String worldIdentifier, String type, String content) {
+    public static void markObjectiveCompleted(UUID playerUuid, int world, String objectiveKey) {
         loadData();
-        playerObjectiveCompletions
-                .computeIfAbsent(playerUuid, k -> new HashMap<>())
-                .computeIfAbsent(worldIdentifier, k -> new HashSet<>())
-                .add(getObjectiveKey(type, content));
-        saveData();
+        WorldProgress progress = getOrCreateProgress(playerUuid, world);
+        if (progress.objectives == null) {
+            progress.objectives = new HashSet<>();
+        }
+        if (!progress.objectives.add(objectiveKey))
+            return;
+
+        ProgressIndex.onObjectiveCompleted(playerUuid, world, objectiveKey, progress.objectives);
+        persist(store -> store.saveObjectiveCompleted(playerUuid.toString(), WorldUUIDSync.getWorldIdentifier(world),
+                objectiveKey));
     }
 
-    public static boolean isRestrictionChecked(String playerUuid, String worldIdentifier, String type, String content) {
+    // Persisted progress of count objectives, keyed by objective key; null if there is none
+    public static Map<String, Integer> getCounters(UUID playerUuid, int world) {
         loadData();
-        Map<String, Set<String>> playerWorlds = playerRestrictionChecks.get(playerUuid);
-        if (playerWorlds == null)
-            return false;
+        WorldProgress progress = getProgress(playerUuid, world);
+        return progress != null ? progress.counters : null;
+    }
 
-        Set<String> checkedRestrictions = playerWorlds.get(worldIdentifier);
-        if (checkedRestrictions == null)
-            return false;
+    // Stores the progress of count objectives, called by ObjectiveCounters when online state is flushed
+    public static void updateCounters(UUID playerUuid, int world, Map<String, Integer> counters) {
+        loadData();
+        if (counters.equals(getCounters(playerUuid, world)))
+            return;
 
-        return checkedRestrictions.contains(getRestrictionKey(type, content));
+        getOrCreateProgress(playerUuid, world).counters = counters;
+        persist(store -> store.saveCounters(playerUuid.toString(), WorldUUIDSync.getWorldIdentifier(world),
+                counters));
     }
 
-    public static void markRestrictionChecked(String playerUuid, String worldIdentifier, String type, String content) {
+    public static boolean isRestrictionChecked(UUID playerUuid, int world, String type, String content) {
         loadData();
-        playerRestrictionChecks
-                .computeIfAbsent(playerUuid, k -> new HashMap<>())
-                .computeIfAbsent(worldIdentifier, k -> new HashSet<>())
-                .add(getRestrictionKey(type, content));
-        saveData();
+        WorldProgress progress = getProgress(playerUuid, world);
+        return progress != null && progress.restrictions != null
+                && progress.restrictions.contains(getRestrictionKey(type, content));
     }
 
-    public static void cleanupDeletedWorlds(MinecraftServer server) {
+    public static void markRestrictionChecked(UUID playerUuid, int world, String type, String content) {
         loadData();
+        WorldProgress progress = getOrCreateProgress(playerUuid, world);
+        if (progress.restrictions == null) {
+            progress.restrictions = new HashSet<>();
+        }
+        String key = getRestrictionKey(type, content);
+        progress.restrictions.add(key);
+        persist(store -> store.saveRestrictionChecked(playerUuid.toString(), WorldUUIDSync.getWorldIdentifier(world),
+                key));
+    }
 
-        // Get existing world identifiers
-        Set<String> existingWorlds = WorldUUIDSync.getExistingWorldIdentifiers(server);
+    // Removes data for worlds that are no longer in existingWorlds. Only the worlds being removed
+    // and the players that have data in them are visited, through the world -> players index.
+    public static void cleanupDeletedWorlds(Set<String> existingWorlds) {
+        loadData();
 
-        // Clean up objective completions
-        for (Map<String, Set<String>> playerWorlds : playerObjectiveCompletions.values()) {
-            playerWorlds.entrySet().removeIf(entry -> {
-                String worldId = entry.getKey();
-                boolean exists = existingWorlds.contains(worldId);
-                if (!exists) {
-                    WeeklyWorld.LOGGER.info("Removing objective data for deleted world: {}", worldId);
+        Set<String> removedWorlds = new HashSet<>();
+        for (Iterator<Map.Entry<Integer, Set<UUID>>> it = worldPlayers.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Integer, Set<UUID>> entry = it.next();
+            int world = entry.getKey();
+            String worldIdentifier = WorldUUIDSync.getWorldIdentifier(world);
+            if (existingWorlds.contains(worldIdentifier))
+                continue;
+
+            for (UUID playerUuid : entry.getValue()) {
+                PlayerProgress player = players.get(playerUuid);
+                if (player == null)
+                    continue;
+                WorldProgress progress = player.get(world);
+                ProgressIndex.onWorldRemoved(playerUuid, world, progress != null ? progress.objectives : null);
+                player.remove(world);
+                if (player.size == 0) {
+                    players.remove(playerUuid);
                 }
-                return !exists;
-            });
+            }
+            it.remove();
+            removedWorlds.add(worldIdentifier);
+            WeeklyWorld.LOGGER.info("Removed data of {} player(s) for deleted world: {}", entry.getValue().size(),
+                    worldIdentifier);
+        }
+        removeUnparsedWorlds(unparsed.objectives, existingWorlds, removedWorlds);
+        removeUnparsedWorlds(unparsed.restrictions, existingWorlds, removedWorlds);
+        removeUnparsedWorlds(unparsed.counters, existingWorlds, removedWorlds);
+        if (removedWorlds.isEmpty())
+            return;
+
+        try {
+            if (!dirty && storage.deleteWorlds(removedWorlds))
+                return;
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.error("Failed to delete worlds from player data, falling back to a full save", e);
         }
+        saveDataAsync();
+    }
 
-        // Clean up restriction checks
-        for (Map<String, Set<String>> playerWorlds : playerRestrictionChecks.values()) {
-            playerWorlds.entrySet().removeIf(entry -> {
-                String worldId = entry.getKey();
-                boolean exists = existingWorlds.contains(worldId);
-                if (!exists) {
-                    WeeklyWorld.LOGGER.info("Removing restriction data for deleted world: {}", worldId);
+    private static <T> void removeUnparsedWorlds(Map<String, Map<String, T>> byPlayer, Set<String> existingWorlds,
+            Set<String> removedWorlds) {
+        for (Iterator<Map<String, T>> it = byPlayer.values().iterator(); it.hasNext();) {
+            Map<String, T> playerWorlds = it.next();
+            for (Iterator<String> worlds = playerWorlds.keySet().iterator(); worlds.hasNext();) {
+                String worldIdentifier = worlds.next();
+                if (!existingWorlds.contains(worldIdentifier)) {
+                    worlds.remove();
+                    removedWorlds.add(worldIdentifier);
                 }
-                return !exists;
-            });
+            }
+            if (playerWorlds.isEmpty()) {
+                it.remove();
+            }
         }
+    }
 
-        saveData();
+    // Full save from a copy of the data, written on the background IO thread
+    private static void saveDataAsync() {
+        PlayerDataSet copy = toDataSet();
+        PlayerDataStorage target = storage;
+        dirty = false;
+
+        pendingSave = BackgroundTasks.runIO(() -> {
+            try {
+                target.saveAll(copy);
+            } catch (IOException e) {
+                WeeklyWorld.LOGGER.error("Failed to save player data", e);
+            }
+        });
     }
 
-    public static Set<String> getAllTrackedPlayers() {
-        loadData();
-        return new HashSet<>(playerObjectiveCompletions.keySet());
+    private static Map<String, Map<String, Set<String>>> deepCopy(Map<String, Map<String, Set<String>>> source) {
+        Map<String, Map<String, Set<String>>> copy = new HashMap<>(source.size() * 2);
+        for (Map.Entry<String, Map<String, Set<String>>> player : source.entrySet()) {
+            Map<String, Set<String>> worlds = new HashMap<>(player.getValue().size() * 2);
+            for (Map.Entry<String, Set<String>> world : player.getValue().entrySet()) {
+                worlds.put(world.getKey(), new HashSet<>(world.getValue()));
+            }
+            copy.put(player.getKey(), worlds);
+        }
+        return copy;
     }
 
+    private static Map<String, Map<String, Map<String, Integer>>> deepCopyCounters(
+            Map<String, Map<String, Map<String, Integer>>> source) {
+        Map<String, Map<String, Map<String, Integer>>> copy = new HashMap<>(source.size() * 2);
+        for (Map.Entry<String, Map<String, Map<String, Integer>>> player : source.entrySet()) {
+            Map<String, Map<String, Integer>> worlds = new HashMap<>(player.getValue().size() * 2);
+            for (Map.Entry<String, Map<String, Integer>> world : player.getValue().entrySet()) {
+                worlds.put(world.getKey(), new HashMap<>(world.getValue()));
+            }
+            copy.put(player.getKey(), worlds);
+        }
+        return copy;
+    }
+
+    private interface StorageUpdate {
+        boolean apply(PlayerDataStorage storage) throws IOException;
+    }
+
+    // Persists a single change, falling back to a full save when the storage cannot apply it
+    // incrementally or earlier changes are still pending. Full saves are not written here but at
+    // the end of the tick, so all changes of a tick share one save on the IO thread.
+    private static void persist(StorageUpdate update) {
+        try {
+            // A background save holds a copy taken before this change and would overwrite it
+            if (!dirty && !isSaving() && update.apply(storage))
+                return;
+        } catch (IOException e) {
+            WeeklyWorld.LOGGER.error("Failed to update player data, falling back to a full save", e);
+        }
+        dirty = true;
+    }
+
+    private static boolean isSaving() {
+        return pendingSave != null && !pendingSave.isDone();
+    }
+
+    // Runs at the end of every tick. While a save is still being written, changes keep
+    // accumulating for the next one instead of queueing a save per tick.
+    private static void saveIfDirty() {
+        if (!dataLoaded || !dirty || isSaving())
+            return;
+        saveDataAsync();
+    }
+
+    // Every world any player has data in, including data of challenges that are no longer active
     public static Set<String> getAllTrackedWorlds() {
         loadData();
         Set<String> worlds = new HashSet<>();
-        for (Map<String, Set<String>> playerWorlds : playerObjectiveCompletions.values()) {
-            worlds.addAll(playerWorlds.keySet());
+        for (int world : worldPlayers.keySet()) {
+            worlds.add(WorldUUIDSync.getWorldIdentifier(world));
         }
+        addUnparsedWorlds(unparsed.objectives, worlds);
+        addUnparsedWorlds(unparsed.restrictions, worlds);
+        addUnparsedWorlds(unparsed.counters, worlds);
         return worlds;
     }
+
+    private static <T> void addUnparsedWorlds(Map<String, Map<String, T>> byPlayer, Set<String> worlds) {
+        for (Map<String, T> playerWorlds : byPlayer.values()) {
+            worlds.addAll(playerWorlds.keySet());
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package net.coolpixels;
+
+import java.io.File;
+import java.io.IOException;
+
+public class SnapshotPlayerDataStorage implements PlayerDataStorage {
+    private final File file;
+
+    public SnapshotPlayerDataStorage(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public boolean exists() {
+        return file.exists();
+    }
+
+    @Override
+    public void load(PlayerDataSet data) throws IOException {
+        PlayerDataSnapshot.read(file, data);
+    }
+
+    @Override
+    public void saveAll(PlayerDataSet data) throws IOException {
+        file.getParentFile().mkdirs();
+        PlayerDataSnapshot.write(file, data);
+    }
+}
@@ -0,0 +1,152 @@
+package net.coolpixels;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+
+// Loads the mod's state off the server thread while the server starts: the environment config,
+// the challenges and the world identifiers in parallel, then the player data once the
+// config has picked the storage. Until everything is in place the readiness gate is closed and
+// event handlers queue their work with runWhenReady instead of loading state mid-tick. The gate
+// is opened on the server thread at the start of a tick, after the queued work has run. Repeated
+// events are merged while queued, so the queue grows with distinct events rather than traffic.
+public class StartupPreload {
+    private static final int MAX_DEFERRED = 8192;
+
+    private static final class Deferred {
+        final IntConsumer task;
+        int amount;
+
+        Deferred(IntConsumer task, int amount) {
+            this.task = task;
+            this.amount = amount;
+        }
+    }
+
+    private static volatile CompletableFuture<Void> loading = null;
+    private static volatile boolean ready = false;
+    // In the order the keys were first queued
+    private static final Map<Object, Deferred> deferred = new LinkedHashMap<>();
+    private static int mergedTasks = 0;
+    private static int droppedTasks = 0;
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> start());
+        ServerLifecycleEvents.SERVER_STARTED.register(StartupPreload::openIfLoaded);
+        ServerTickEvents.START_SERVER_TICK.register(StartupPreload::openIfLoaded);
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            ready = false;
+            loading = null;
+            deferred.clear();
+            mergedTasks = 0;
+            droppedTasks = 0;
+        });
+    }
+
+    private static void start() {
+        long startNanos = System.nanoTime();
+        ready = false;
+
+        CompletableFuture<Void> config = CompletableFuture.runAsync(ServerEnvironmentConfig::loadConfig);
+        CompletableFuture<Void> definition = CompletableFuture.runAsync(ServerChallengeData::getChallenges);
+        CompletableFuture<Void> worlds = CompletableFuture.runAsync(WorldUUIDSync::loadWorldIdentifiers);
+        CompletableFuture<PlayerDataSet> playerData = config.thenApplyAsync(v -> ServerPlayerData.readStorage());
+
+        // The audit log only needs the config
+        config.thenRun(AuditLog::update);
+
+        // Installing the player data rolls the week over and indexes progress against the challenge
+        loading = CompletableFuture.allOf(definition, worlds, playerData)
+                .thenRun(() -> ServerPlayerData.install(playerData.join()))
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        WeeklyWorld.LOGGER.error("Failed to preload Weekly World state, loading on demand", error);
+                    } else {
+                        WeeklyWorld.LOGGER.info("Weekly World state loaded in {} ms",
+                                (System.nanoTime() - startNanos) / 1_000_000);
+                    }
+                });
+    }
+
+    // Whether the state is loaded and events can be handled right away
+    public static boolean isReady() {
+        return ready;
+    }
+
+    // Must run on the server thread. Runs the task now if the state is loaded, otherwise queues it
+    // until the gate opens.
+    public static void runWhenReady(Runnable task) {
+        runWhenReady(new Object(), 0, amount -> task.run());
+    }
+
+    // Like runWhenReady, but a task whose key equals a queued one is merged into it: the queued task
+    // runs once with the sum of the amounts, e.g. repeated kills of one mob type by one player.
+    // Only beyond MAX_DEFERRED distinct keys are tasks dropped.
+    public static void runWhenReady(Object key, int amount, IntConsumer task) {
+        if (ready) {
+            task.accept(amount);
+            return;
+        }
+
+        Deferred queued = deferred.get(key);
+        if (queued != null) {
+            queued.amount += amount;
+            mergedTasks++;
+        } else if (deferred.size() < MAX_DEFERRED) {
+            deferred.put(key, new Deferred(task, amount));
+        } else if (droppedTasks++ == 0) {
+            WeeklyWorld.LOGGER.warn("More than {} distinct events while Weekly World is loading, dropping "
+                    + "further ones; objectives they would complete are not recorded", MAX_DEFERRED);
+        }
+    }
+
+    // Blocks until a running preload has finished, for callers outside the gated paths.
+    // Returns false if there is no preload or it failed.
+    static boolean awaitLoaded() {
+        CompletableFuture<Void> current = loading;
+        if (current == null)
+            return false;
+        try {
+            current.join();
+            return true;
+        } catch (CompletionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    private static void openIfLoaded(MinecraftServer server) {
+        CompletableFuture<Void> current = loading;
+        if (ready || current == null || !current.isDone())
+            return;
+
+        // A failed preload still opens the gate; state is then loaded on first use as before
+        ready = true;
+        List<Deferred> tasks = new ArrayList<>(deferred.values());
+        deferred.clear();
+        for (Deferred task : tasks) {
+            try {
+                task.task.accept(task.amount);
+            } catch (RuntimeException e) {
+                WeeklyWorld.LOGGER.error("Deferred Weekly World task failed", e);
+            }
+        }
+        if (droppedTasks > 0) {
+            WeeklyWorld.LOGGER.warn("Ran {} event(s) queued during loading ({} merged into them), dropped {}",
+                    tasks.size(), mergedTasks, droppedTasks);
+        } else if (!tasks.isEmpty()) {
+            WeeklyWorld.LOGGER.info("Ran {} event(s) queued during loading ({} merged into them)", tasks.size(),
+                    mergedTasks);
+        }
+        mergedTasks = 0;
+        droppedTasks = 0;
+    }
+}
@@ -0,0 +1,270 @@
+package net.coolpixels;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+// Measures how much time the mod adds to server ticks. Instrumented code calls start() and
+// end() around its work; while profiling is off start() only reads a flag. Timings are grouped
+// per tick (everything between two END_SERVER_TICK events, so tasks run between ticks count
+// towards the next one) and only top-level sections add to the tick total, so nested sections
+// are not counted twice.
+public class TickProfiler {
+    public enum Section {
+        ITEM_PICKUP("ItemPickupMixin"),
+        INVENTORY_CHANGE("InventoryChangeMixin"),
+        ADVANCEMENT("AdvancementMixin"),
+        DIMENSION_SWITCH("DimensionSwitchMixin"),
+        ENTITY_KILL("EntityKillMixin"),
+        REPORT_EVENT("reportEvent"),
+        SAVE_DATA("saveData"),
+        PLAYER_JOIN("player join"),
+        RELOAD("reload re-evaluation");
+
+        private final String label;
+
+        Section(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final int HISTORY_TICKS = 1200; // One minute at 20 TPS
+    private static final int MAX_ENTRIES_PER_TICK = 256;
+    private static final int WORST_TICKS = 5;
+    private static final String DUMP_DIR = "debug";
+
+    private static volatile boolean enabled = false;
+    private static Thread serverThread = null;
+
+    // Sections of the current tick, recorded as they end
+    private static final long[] entryStart = new long[MAX_ENTRIES_PER_TICK];
+    private static final long[] entryNanos = new long[MAX_ENTRIES_PER_TICK];
+    private static final byte[] entrySection = new byte[MAX_ENTRIES_PER_TICK];
+    private static final byte[] entryDepth = new byte[MAX_ENTRIES_PER_TICK];
+    private static int entryCount = 0;
+    private static int droppedEntries = 0;
+    private static int depth = 0;
+    private static long tickModNanos = 0;
+    private static long tickStartNanos = 0;
+
+    // Ring buffers of the last HISTORY_TICKS ticks
+    private static final long[] modHistory = new long[HISTORY_TICKS];
+    private static final long[] tickHistory = new long[HISTORY_TICKS];
+    private static int historyNext = 0;
+    private static int historySize = 0;
+    private static long tickNumber = 0;
+
+    private static final long[] sectionCalls = new long[Section.values().length];
+    private static final long[] sectionNanos = new long[Section.values().length];
+    private static final List<WorstTick> worstTicks = new ArrayList<>();
+    private static long startedAt = 0;
+
+    private record WorstTick(long tick, long modNanos, long tickNanos, long[] starts, long[] nanos, byte[] sections,
+            byte[] depths, int dropped) {
+    }
+
+    public static void register() {
+        ServerTickEvents.START_SERVER_TICK.register(server -> {
+            if (enabled) {
+                tickStartNanos = System.nanoTime();
+            }
+        });
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (enabled) {
+                endTick();
+            }
+        });
+    }
+
+    // Returns 0 when profiling is off or the caller is not on the server thread
+    public static long start() {
+        if (!enabled || Thread.currentThread() != serverThread)
+            return 0;
+        depth++;
+        return System.nanoTime();
+    }
+
+    public static void end(Section section, long startNanos) {
+        if (startNanos == 0)
+            return;
+        long nanos = System.nanoTime() - startNanos;
+        depth--;
+        if (!enabled)
+            return;
+
+        sectionCalls[section.ordinal()]++;
+        sectionNanos[section.ordinal()] += nanos;
+        if (depth == 0) {
+            tickModNanos += nanos;
+        }
+        if (entryCount < MAX_ENTRIES_PER_TICK) {
+            entryStart[entryCount] = startNanos;
+            entryNanos[entryCount] = nanos;
+            entrySection[entryCount] = (byte) section.ordinal();
+            entryDepth[entryCount] = (byte) Math.min(depth, Byte.MAX_VALUE);
+            entryCount++;
+        } else {
+            droppedEntries++;
+        }
+    }
+
+    private static void endTick() {
+        long tickNanos = tickStartNanos != 0 ? System.nanoTime() - tickStartNanos : 0;
+        tickNumber++;
+
+        modHistory[historyNext] = tickModNanos;
+        tickHistory[historyNext] = tickNanos;
+        historyNext = (historyNext + 1) % HISTORY_TICKS;
+        historySize = Math.min(historySize + 1, HISTORY_TICKS);
+
+        if (tickModNanos > 0 && (worstTicks.size() < WORST_TICKS
+                || tickModNanos > worstTicks.get(worstTicks.size() - 1).modNanos())) {
+            worstTicks.add(new WorstTick(tickNumber, tickModNanos, tickNanos,
+                    Arrays.copyOf(entryStart, entryCount), Arrays.copyOf(entryNanos, entryCount),
+                    Arrays.copyOf(entrySection, entryCount), Arrays.copyOf(entryDepth, entryCount), droppedEntries));
+            worstTicks.sort(Comparator.comparingLong(WorstTick::modNanos).reversed());
+            if (worstTicks.size() > WORST_TICKS) {
+                worstTicks.remove(WORST_TICKS);
+            }
+        }
+
+        tickModNanos = 0;
+        entryCount = 0;
+        droppedEntries = 0;
+        depth = 0;
+    }
+
+    // Must run on the server thread
+    public static void enable(MinecraftServer server) {
+        serverThread = server.getThread();
+        Arrays.fill(sectionCalls, 0);
+        Arrays.fill(sectionNanos, 0);
+        worstTicks.clear();
+        historyNext = 0;
+        historySize = 0;
+        tickNumber = 0;
+        tickModNanos = 0;
+        tickStartNanos = 0;
+        entryCount = 0;
+        droppedEntries = 0;
+        depth = 0;
+        startedAt = System.currentTimeMillis();
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean hasData() {
+        return historySize > 0;
+    }
+
+    // Short report for chat: per-tick percentiles and the worst ticks without call trees
+    public static List<String> summarize() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Weekly World cost over the last %d ticks (%s):", historySize,
+                enabled ? "profiling" : "stopped"));
+        lines.add("Mod ms/tick: " + percentiles(modHistory));
+        lines.add("Server ms/tick: " + percentiles(tickHistory));
+
+        long modTotal = 0;
+        long tickTotal = 0;
+        for (int i = 0; i < historySize; i++) {
+            modTotal += modHistory[i];
+            tickTotal += tickHistory[i];
+        }
+        if (tickTotal > 0) {
+            lines.add(String.format("Share of server tick time: %.2f%%", 100.0 * modTotal / tickTotal));
+        }
+
+        for (Section section : Section.values()) {
+            long calls = sectionCalls[section.ordinal()];
+            if (calls > 0) {
+                long nanos = sectionNanos[section.ordinal()];
+                lines.add(String.format("  %s: %d calls, %.2f ms total, %.1f us avg", section.label, calls,
+                        nanos / 1e6, nanos / 1e3 / calls));
+            }
+        }
+
+        for (WorstTick worst : worstTicks) {
+            lines.add(String.format("  Tick %d: %.3f ms in mod, %.3f ms tick, %d sections", worst.tick(),
+                    worst.modNanos() / 1e6, worst.tickNanos() / 1e6, worst.nanos().length + worst.dropped()));
+        }
+        return lines;
+    }
+
+    // Full report including what the mod did in each of the worst ticks
+    public static String report() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf("Weekly World tick profile, started %s%n%n",
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(startedAt)));
+        for (String line : summarize()) {
+            out.println(line);
+        }
+
+        for (WorstTick worst : worstTicks) {
+            out.printf("%nTick %d: %.3f ms in mod, %.3f ms tick%n", worst.tick(), worst.modNanos() / 1e6,
+                    worst.tickNanos() / 1e6);
+
+            // Entries are recorded when they end; ordering by start time restores the call tree
+            Integer[] order = new Integer[worst.nanos().length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> worst.starts()[i]));
+            for (int i : order) {
+                out.printf("%s%s %.1f us%n", "  ".repeat(worst.depths()[i] + 1),
+                        Section.values()[worst.sections()[i]].label, worst.nanos()[i] / 1e3);
+            }
+            if (worst.dropped() > 0) {
+                out.printf("  ...and %d more sections%n", worst.dropped());
+            }
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    // Writes the full report to the debug directory on the IO thread, returns the target file
+    public static File dump() {
+        File dir = new File(WeeklyWorld.getGameDir().toFile(), DUMP_DIR);
+        File file = new File(dir, "weekly-world-profile-"
+                + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + ".txt");
+        String report = report();
+        BackgroundTasks.runIO(() -> {
+            dir.mkdirs();
+            try (FileWriter writer = new FileWriter(file)) {
+                writer.write(report);
+            } catch (IOException e) {
+                WeeklyWorld.LOGGER.error("Failed to write tick profile to {}", file, e);
+            }
+        });
+        return file;
+    }
+
+    private static String percentiles(long[] history) {
+        if (historySize == 0)
+            return "no data";
+        long[] sorted = Arrays.copyOf(history, historySize);
+        Arrays.sort(sorted);
+        return String.format("p50 %.3f, p90 %.3f, p99 %.3f, max %.3f", percentile(sorted, 0.5),
+                percentile(sorted, 0.9), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,165 @@
+package net.coolpixels;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// Open-addressing map keyed by the two longs of a UUID, so lookups neither hash a string nor
+// allocate. Linear probing over parallel arrays; a null value marks a free slot, so null values
+// cannot be stored. Not thread-safe.
+public class UuidMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] most;
+    private long[] least;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    public UuidMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public V get(UUID uuid) {
+        return get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long msb, long lsb) {
+        for (int slot = slot(msb, lsb);; slot = (slot + 1) & mask) {
+            Object value = values[slot];
+            if (value == null)
+                return null;
+            if (most[slot] == msb && least[slot] == lsb)
+                return (V) value;
+        }
+    }
+
+    public boolean containsKey(UUID uuid) {
+        return get(uuid) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(UUID uuid, V value) {
+        if (value == null)
+            throw new NullPointerException("UuidMap does not store null values");
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int slot = find(msb, lsb);
+        Object previous = values[slot];
+        if (previous == null) {
+            most[slot] = msb;
+            least[slot] = lsb;
+            values[slot] = value;
+            if (++size > (values.length >> 1) + (values.length >> 2)) {
+                allocate(values.length << 1);
+            }
+            return null;
+        }
+        values[slot] = value;
+        return (V) previous;
+    }
+
+    public V computeIfAbsent(UUID uuid, Supplier<V> factory) {
+        V value = get(uuid);
+        if (value == null) {
+            value = factory.get();
+            put(uuid, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(UUID uuid) {
+        int slot = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        Object previous = values[slot];
+        if (previous == null)
+            return null;
+
+        // Shift later entries of the probe sequence back so lookups never stop at a hole
+        int hole = slot;
+        for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = slot(most[next], least[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                most[hole] = most[next];
+                least[hole] = least[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = null;
+        size--;
+        return (V) previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Creates a UUID per entry; meant for saving and rebuilding, not for the event path
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<UUID, V> action) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                action.accept(new UUID(most[slot], least[slot]), (V) values[slot]);
+            }
+        }
+    }
+
+    // Copy of the keys
+    public Set<UUID> keySet() {
+        Set<UUID> keys = new HashSet<>(size * 2);
+        forEach((uuid, value) -> keys.add(uuid));
+        return keys;
+    }
+
+    // Slot holding the key, or the free slot where it would be inserted
+    private int find(long msb, long lsb) {
+        int slot = slot(msb, lsb);
+        while (values[slot] != null && (most[slot] != msb || least[slot] != lsb)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int slot(long msb, long lsb) {
+        // Random and name-based UUIDs are already well mixed, the multiply only spreads the
+        // fixed version and variant bits
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        Object[] oldValues = values;
+
+        most = new long[capacity];
+        least = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        if (oldValues == null)
+            return;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = find(oldMost[i], oldLeast[i]);
+                most[slot] = oldMost[i];
+                least[slot] = oldLeast[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
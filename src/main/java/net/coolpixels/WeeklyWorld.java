@@ -3,46 +3,118 @@ package net.coolpixels;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.loader.api.FabricLoader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
 public class WeeklyWorld implements ModInitializer {
     public static final String MOD_ID = "weekly-world";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
+    // Set by tools that run without Fabric Loader, e.g. EventReplay
+    private static volatile Path gameDirOverride = null;
+
+    public static Path getGameDir() {
+        Path override = gameDirOverride;
+        return override != null ? override : FabricLoader.getInstance().getGameDir();
+    }
+
+    public static Path getConfigDir() {
+        Path override = gameDirOverride;
+        return override != null ? override.resolve("config") : FabricLoader.getInstance().getConfigDir();
+    }
+
+    static void setGameDir(Path dir) {
+        gameDirOverride = dir;
+    }
+
     @Override
     public void onInitialize() {
         LOGGER.info("Initializing Weekly World (Server-Only)");
 
-        // Load server environment configuration
-        ServerEnvironmentConfig.loadConfig();
+        // Resolve tag and wildcard objectives, again after data pack reloads. Registered first so
+        // the preload can resolve them against the starting server.
+        ObjectivePatterns.register();
+
+        // Load config, challenge, world identifiers and player data off-thread while the server starts
+        StartupPreload.register();
 
         // Register world UUID sync
         WorldUUIDSync.register();
 
+        // Register progress packets for client mods
+        ProgressSync.register();
+
+        // Register player data saves, coalesced to one per tick
+        ServerPlayerData.register();
+
+        // Register chat notification batching
+        PlayerNotifier.register();
+
         // Register server events
         registerServerEvents();
 
+        // Register operator commands
+        WeeklyWorldCommands.register();
+
+        // Register config reloading
+        ChallengeReloader.register();
+
+        // Register challenge fetching, idle unless fetch_challenges is enabled
+        ChallengeFetcher.register();
+
+        // Register the progress feed for dashboards, idle unless progress_feed is enabled
+        ProgressFeed.register();
+
+        // Register tick cost profiling, idle until enabled with /weeklyworld profile start
+        TickProfiler.register();
+
         // Save data when server stops
         ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
             LOGGER.info("Server stopping, saving data");
             WorldUUIDSync.saveAllUUIDs();
-            ServerPlayerData.saveData();
+            EventRecorder.stop();
+            ObjectiveCounters.flushAll();
+            ServerPlayerData.close();
+            BackgroundTasks.awaitPending();
+            AuditLog.stop();
         });
 
-        // Clean up deleted worlds when server starts
+        // Clean up deleted worlds when server starts. The saves directory is listed off-thread and
+        // only the removal itself runs on the server thread, so startup is not delayed.
         ServerLifecycleEvents.SERVER_STARTED.register(server -> {
-            LOGGER.info("Server started, cleaning up deleted worlds");
-            WorldUUIDSync.cleanupDeletedWorlds();
-            ServerPlayerData.cleanupDeletedWorlds(server);
+            LOGGER.info("Server started, cleaning up deleted worlds in the background");
+            CompletableFuture.supplyAsync(() -> WorldUUIDSync.getExistingWorldIdentifiers(server))
+                    .thenAcceptAsync(existingWorlds -> {
+                        if (existingWorlds == null) {
+                            LOGGER.debug("No saves directory found, skipping deleted world cleanup");
+                            return;
+                        }
+                        StartupPreload.runWhenReady(() -> {
+                            WorldUUIDSync.cleanupDeletedWorlds(existingWorlds);
+                            ServerPlayerData.cleanupDeletedWorlds(existingWorlds);
+                        });
+                    }, server)
+                    .exceptionally(e -> {
+                        LOGGER.error("Failed to clean up deleted worlds", e);
+                        return null;
+                    });
         });
     }
 
     private void registerServerEvents() {
         // Handle player joining
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
-            ServerEventHandler.handlePlayerJoin(handler.player);
+            ServerEventHandler.handlePlayerJoin(handler.player, server);
+        });
+
+        // Persist count objective progress when a player leaves
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            ObjectiveCounters.remove(handler.player);
         });
 
         LOGGER.info("Server events registered");
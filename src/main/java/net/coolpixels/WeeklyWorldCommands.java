@@ -0,0 +1,154 @@
+package net.coolpixels;
+
+import com.mojang.brigadier.CommandDispatcher;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.util.Set;
+import java.util.UUID;
+
+public class WeeklyWorldCommands {
+    private static final int MAX_LISTED_PLAYERS = 20;
+
+    public static void register() {
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
+            registerCommands(dispatcher);
+        });
+    }
+
+    private static void registerCommands(CommandDispatcher<ServerCommandSource> dispatcher) {
+        dispatcher.register(CommandManager.literal("weeklyworld")
+                .requires(source -> source.hasPermissionLevel(2))
+                .then(CommandManager.literal("stats")
+                        .executes(context -> showStats(context.getSource())))
+                .then(CommandManager.literal("reload")
+                        .executes(context -> reload(context.getSource())))
+                .then(CommandManager.literal("profile")
+                        .then(CommandManager.literal("start")
+                                .executes(context -> startProfiling(context.getSource())))
+                        .then(CommandManager.literal("stop")
+                                .executes(context -> stopProfiling(context.getSource())))
+                        .then(CommandManager.literal("report")
+                                .executes(context -> showProfile(context.getSource())))
+                        .then(CommandManager.literal("dump")
+                                .executes(context -> dumpProfile(context.getSource()))))
+                .then(CommandManager.literal("record")
+                        .then(CommandManager.literal("start")
+                                .executes(context -> startRecording(context.getSource())))
+                        .then(CommandManager.literal("stop")
+                                .executes(context -> stopRecording(context.getSource())))));
+    }
+
+    private static int startRecording(ServerCommandSource source) {
+        if (EventRecorder.isRecording()) {
+            source.sendError(Text.literal("Events are already being recorded"));
+            return 0;
+        }
+        String path = EventRecorder.start().getPath();
+        source.sendFeedback(() -> Text.literal("Recording events to " + path)
+                .formatted(Formatting.GOLD), true);
+        return 1;
+    }
+
+    private static int stopRecording(ServerCommandSource source) {
+        if (!EventRecorder.isRecording()) {
+            source.sendError(Text.literal("No recording running, use /weeklyworld record start"));
+            return 0;
+        }
+        long events = EventRecorder.stop();
+        source.sendFeedback(() -> Text.literal(String.format("Recorded %d events", events))
+                .formatted(Formatting.GOLD), true);
+        return 1;
+    }
+
+    private static int startProfiling(ServerCommandSource source) {
+        TickProfiler.enable(source.getServer());
+        source.sendFeedback(() -> Text.literal("Weekly World tick profiling started")
+                .formatted(Formatting.GOLD), true);
+        return 1;
+    }
+
+    private static int stopProfiling(ServerCommandSource source) {
+        TickProfiler.disable();
+        source.sendFeedback(() -> Text.literal("Weekly World tick profiling stopped")
+                .formatted(Formatting.GOLD), true);
+        return showProfile(source);
+    }
+
+    private static int showProfile(ServerCommandSource source) {
+        if (!TickProfiler.hasData()) {
+            source.sendError(Text.literal("No profile recorded, use /weeklyworld profile start"));
+            return 0;
+        }
+        for (String line : TickProfiler.summarize()) {
+            source.sendFeedback(() -> Text.literal(line), false);
+        }
+        return 1;
+    }
+
+    private static int dumpProfile(ServerCommandSource source) {
+        if (!TickProfiler.hasData()) {
+            source.sendError(Text.literal("No profile recorded, use /weeklyworld profile start"));
+            return 0;
+        }
+        String path = TickProfiler.dump().getPath();
+        source.sendFeedback(() -> Text.literal("Tick profile written to " + path), false);
+        return 1;
+    }
+
+    private static int reload(ServerCommandSource source) {
+        String summary = ChallengeReloader.reload(source.getServer());
+        source.sendFeedback(() -> Text.literal(summary).formatted(Formatting.GOLD), true);
+        return 1;
+    }
+
+    private static int showStats(ServerCommandSource source) {
+        source.sendFeedback(() -> Text.literal(String.format("Week %d standings:", ServerChallengeData.getWeek()))
+                .formatted(Formatting.GOLD, Formatting.BOLD), false);
+
+        // Completions per objective
+        for (ChallengeDefinition.Objective objective : ServerChallengeData.getChallenges().getObjectives()) {
+            int count = ProgressIndex.getObjectiveCompletionCount(objective);
+            String label = objective.challenge().isPrimary() ? ServerChallengeData.formatObjective(objective)
+                    : String.format("[%s] %s", ServerChallengeData.formatChallenge(objective.challenge()),
+                            ServerChallengeData.formatObjective(objective));
+            source.sendFeedback(() -> Text.literal(String.format("%s: %d", label, count)), false);
+        }
+
+        // Completions in the world the command source is in
+        if (source.getWorld() != null) {
+            String worldIdentifier = WorldUUIDSync.getOrCreateWorldIdentifier(source.getWorld());
+            int worldCount = ProgressIndex.getWorldCompletionCount(
+                    WorldUUIDSync.getOrCreateWorldHandle(source.getWorld()));
+            source.sendFeedback(() -> Text.literal(String.format("Objective completions in %s: %d",
+                    worldIdentifier, worldCount)), false);
+        }
+
+        // Players who completed every objective
+        Set<UUID> finished = ProgressIndex.getFinishedPlayers();
+        source.sendFeedback(() -> Text.literal(String.format("Finished players: %d", finished.size()))
+                .formatted(Formatting.GREEN), false);
+
+        int listed = 0;
+        for (UUID playerUuid : finished) {
+            if (listed++ == MAX_LISTED_PLAYERS) {
+                int remaining = finished.size() - MAX_LISTED_PLAYERS;
+                source.sendFeedback(() -> Text.literal(String.format("...and %d more", remaining)), false);
+                break;
+            }
+            String name = getPlayerName(source, playerUuid);
+            source.sendFeedback(() -> Text.literal(" - " + name), false);
+        }
+
+        return finished.size();
+    }
+
+    private static String getPlayerName(ServerCommandSource source, UUID playerUuid) {
+        ServerPlayerEntity player = source.getServer().getPlayerManager().getPlayer(playerUuid);
+        return player != null ? player.getName().getString() : playerUuid.toString();
+    }
+}
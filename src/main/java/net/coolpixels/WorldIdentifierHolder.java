@@ -0,0 +1,13 @@
+package net.coolpixels;
+
+// Implemented on World by WorldMixin so the identifier and its handle can be cached on the world itself
+public interface WorldIdentifierHolder {
+    String weeklyworld$getIdentifier();
+
+    void weeklyworld$setIdentifier(String identifier);
+
+    // 0 until resolved, see WorldUUIDSync.getOrCreateWorldHandle
+    int weeklyworld$getHandle();
+
+    void weeklyworld$setHandle(int handle);
+}
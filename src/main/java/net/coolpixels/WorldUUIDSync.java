@@ -2,10 +2,10 @@ package net.coolpixels;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
-import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.network.packet.CustomPayload;
@@ -16,22 +16,29 @@ import net.minecraft.world.World;
 import net.minecraft.util.WorldSavePath;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class WorldUUIDSync {
     public static final Identifier WORLD_UUID_PACKET = Identifier.of(WeeklyWorld.MOD_ID, "world_uuid");
-    private static final WeakHashMap<World, String> worldIdentifiers = new WeakHashMap<>();
-    private static final Map<String, String> persistentWorldIdentifiers = new HashMap<>();
+    // Read by the background save while the server thread may add new identifiers
+    private static final Map<String, String> persistentWorldIdentifiers = new ConcurrentHashMap<>();
+    private static final AtomicBoolean saveQueued = new AtomicBoolean(false);
     private static final String DATA_FILE = "world_identifiers.json";
     private static final Gson GSON = new Gson();
 
-    static {
-        loadWorldIdentifiers();
-    }
+    // World identifiers interned to small int handles, so player data stores an int per world
+    // instead of the identifier string. Handles start at 1 and are never reused.
+    private static final Map<String, Integer> worldHandles = new HashMap<>();
+    private static volatile String[] handleIdentifiers = new String[16];
+    private static int nextHandle = 1;
+
+    private static volatile boolean identifiersLoaded = false;
 
     // Custom payload record for the world identifier packet
     public record WorldUUIDPayload(String worldIdentifier) implements CustomPayload {
@@ -53,6 +60,11 @@ public class WorldUUIDSync {
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
             sendWorldUUID(handler.player);
         });
+
+        // Resolve identifiers once when a world loads so event handlers only read a field
+        ServerWorldEvents.LOAD.register((server, world) -> {
+            getOrCreateWorldIdentifier(world);
+        });
     }
 
     public static void saveAllUUIDs() {
@@ -60,46 +72,76 @@ public class WorldUUIDSync {
     }
 
     // Clean up identifiers for worlds that no longer exist
-    public static void cleanupDeletedWorlds() {
-        // This method should be called periodically or when worlds are known to be
-        // deleted
-        // Check the server's saves directory for existing world folders
-        File configDir = FabricLoader.getInstance().getConfigDir().toFile();
-        File savesDir = new File(configDir.getParentFile(), "saves");
-
-        if (savesDir.exists()) {
-            Set<String> existingWorlds = new HashSet<>();
-            File[] worldFolders = savesDir.listFiles(File::isDirectory);
-
-            if (worldFolders != null) {
-                for (File worldFolder : worldFolders) {
-                    String worldName = worldFolder.getName();
-                    // Add the world folder name as a valid identifier
-                    existingWorlds.add(worldName);
-                    // Also add dimension-specific identifiers for backwards compatibility
-                    existingWorlds.add(worldName + "_minecraft:overworld");
-                    existingWorlds.add(worldName + "_minecraft:the_nether");
-                    existingWorlds.add(worldName + "_minecraft:the_end");
-                }
-            }
-
-            // Remove identifiers for worlds that no longer exist
-            persistentWorldIdentifiers.entrySet().removeIf(entry -> !existingWorlds.contains(entry.getKey()));
-            saveWorldIdentifiers();
+    public static void cleanupDeletedWorlds(Set<String> existingWorlds) {
+        loadWorldIdentifiers();
+        if (persistentWorldIdentifiers.keySet().removeIf(key -> !existingWorlds.contains(key))) {
+            queueSave();
         }
     }
 
     public static String getOrCreateWorldIdentifier(World world) {
-        return worldIdentifiers.computeIfAbsent(world, w -> {
-            String worldKey = getWorldKey(w);
+        WorldIdentifierHolder holder = (WorldIdentifierHolder) world;
+        String identifier = holder.weeklyworld$getIdentifier();
+        if (identifier == null) {
+            identifier = resolveWorldIdentifier(world);
+            holder.weeklyworld$setIdentifier(identifier);
+        }
+        return identifier;
+    }
+
+    public static int getOrCreateWorldHandle(World world) {
+        WorldIdentifierHolder holder = (WorldIdentifierHolder) world;
+        int handle = holder.weeklyworld$getHandle();
+        if (handle == 0) {
+            handle = getWorldHandle(getOrCreateWorldIdentifier(world));
+            holder.weeklyworld$setHandle(handle);
+        }
+        return handle;
+    }
+
+    // Interns the identifier, e.g. when player data is loaded
+    public static synchronized int getWorldHandle(String identifier) {
+        Integer handle = worldHandles.get(identifier);
+        if (handle != null)
+            return handle;
 
-            return persistentWorldIdentifiers.computeIfAbsent(worldKey, key -> {
-                String newIdentifier = getWorldFolderName(w);
-                WeeklyWorld.LOGGER.debug("Creating new world identifier: {} for key: {}", newIdentifier, key);
+        String[] identifiers = handleIdentifiers;
+        if (nextHandle == identifiers.length) {
+            identifiers = Arrays.copyOf(identifiers, identifiers.length * 2);
+        }
+        identifiers[nextHandle] = identifier;
+        handleIdentifiers = identifiers;
+        worldHandles.put(identifier, nextHandle);
+        return nextHandle++;
+    }
+
+    // Any thread may resolve a handle it was handed by the server thread
+    public static String getWorldIdentifier(int handle) {
+        return handleIdentifiers[handle];
+    }
+
+    private static String resolveWorldIdentifier(World world) {
+        loadWorldIdentifiers();
+        String worldKey = getWorldKey(world);
+        String identifier = persistentWorldIdentifiers.get(worldKey);
+        if (identifier != null)
+            return identifier;
+
+        identifier = getWorldFolderName(world);
+        WeeklyWorld.LOGGER.debug("Creating new world identifier: {} for key: {}", identifier, worldKey);
+        persistentWorldIdentifiers.put(worldKey, identifier);
+        queueSave();
+        return identifier;
+    }
+
+    // Coalesces saves so a burst of new worlds results in a single background write
+    private static void queueSave() {
+        if (saveQueued.compareAndSet(false, true)) {
+            BackgroundTasks.runIO(() -> {
+                saveQueued.set(false);
                 saveWorldIdentifiers();
-                return newIdentifier;
             });
-        });
+        }
     }
 
     private static String getWorldKey(World world) {
@@ -158,7 +200,12 @@ public class WorldUUIDSync {
         return "unknown";
     }
 
-    private static void loadWorldIdentifiers() {
+    // Called by StartupPreload, and before any access in case the preload did not run
+    public static synchronized void loadWorldIdentifiers() {
+        if (identifiersLoaded)
+            return;
+        identifiersLoaded = true;
+
         File file = getDataFile();
         if (file.exists()) {
             try (Reader reader = new FileReader(file)) {
@@ -175,7 +222,9 @@ public class WorldUUIDSync {
         }
     }
 
-    private static void saveWorldIdentifiers() {
+    private static synchronized void saveWorldIdentifiers() {
+        // Never replace the file with an empty map because nothing was loaded yet
+        loadWorldIdentifiers();
         File file = getDataFile();
         file.getParentFile().mkdirs();
 
@@ -193,7 +242,7 @@ public class WorldUUIDSync {
     }
 
     private static File getDataFile() {
-        File configDir = FabricLoader.getInstance().getConfigDir().toFile();
+        File configDir = WeeklyWorld.getConfigDir().toFile();
         return new File(configDir, DATA_FILE);
     }
 
@@ -202,26 +251,28 @@ public class WorldUUIDSync {
         String identifier = getOrCreateWorldIdentifier(world);
         WorldUUIDPayload payload = new WorldUUIDPayload(identifier);
         ServerPlayNetworking.send(player, payload);
-    } // Helper method for ServerPlayerData to get existing world identifiers
+    }
 
+    // Lists the world identifiers that still exist in the saves directory. Returns null when
+    // there is no saves directory, in which case nothing should be cleaned up.
     public static Set<String> getExistingWorldIdentifiers(MinecraftServer server) {
-        Set<String> existingWorlds = new HashSet<>();
-
         // Get the saves directory path
         File savesDir = new File(server.getRunDirectory().toFile(), "saves");
+        if (!savesDir.isDirectory()) {
+            return null;
+        }
 
-        if (savesDir.exists() && savesDir.isDirectory()) {
-            File[] worldFolders = savesDir.listFiles(File::isDirectory);
-
-            if (worldFolders != null) {
-                for (File worldFolder : worldFolders) {
-                    String worldName = worldFolder.getName();
-                    existingWorlds.add(worldName);
-                    // Also add dimension-specific identifiers for backwards compatibility
-                    existingWorlds.add(worldName + "_minecraft:overworld");
-                    existingWorlds.add(worldName + "_minecraft:the_nether");
-                    existingWorlds.add(worldName + "_minecraft:the_end");
-                }
+        Set<String> existingWorlds = new HashSet<>();
+        File[] worldFolders = savesDir.listFiles(File::isDirectory);
+
+        if (worldFolders != null) {
+            for (File worldFolder : worldFolders) {
+                String worldName = worldFolder.getName();
+                existingWorlds.add(worldName);
+                // Also add dimension-specific identifiers for backwards compatibility
+                existingWorlds.add(worldName + "_minecraft:overworld");
+                existingWorlds.add(worldName + "_minecraft:the_nether");
+                existingWorlds.add(worldName + "_minecraft:the_end");
             }
         }
 
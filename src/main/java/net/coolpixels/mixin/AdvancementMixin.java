@@ -1,6 +1,7 @@
 package net.coolpixels.mixin;
 
 import net.coolpixels.ServerEventHandler;
+import net.coolpixels.TickProfiler;
 import net.minecraft.advancement.AdvancementEntry;
 import net.minecraft.advancement.AdvancementProgress;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -20,10 +21,15 @@ public class AdvancementMixin {
     private void onGrantCriterion(AdvancementEntry advancement, String criterionName,
             CallbackInfoReturnable<Boolean> cir) {
         if (owner != null) {
-            AdvancementProgress progress = ((PlayerAdvancementTracker) (Object) this).getProgress(advancement);
-            if (progress != null && progress.isDone()) {
-                String advancementId = advancement.id().toString();
-                ServerEventHandler.reportEvent(owner, "advancement", advancementId);
+            long start = TickProfiler.start();
+            try {
+                AdvancementProgress progress = ((PlayerAdvancementTracker) (Object) this).getProgress(advancement);
+                if (progress != null && progress.isDone()) {
+                    String advancementId = advancement.id().toString();
+                    ServerEventHandler.reportEvent(owner, "advancement", advancementId);
+                }
+            } finally {
+                TickProfiler.end(TickProfiler.Section.ADVANCEMENT, start);
             }
         }
     }
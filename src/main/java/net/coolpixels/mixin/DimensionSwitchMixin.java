@@ -1,6 +1,7 @@
 package net.coolpixels.mixin;
 
 import net.coolpixels.ServerEventHandler;
+import net.coolpixels.TickProfiler;
 import net.minecraft.entity.Entity;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.world.TeleportTarget;
@@ -14,8 +15,13 @@ public class DimensionSwitchMixin {
     @Inject(at = @At("HEAD"), method = "sendTravelThroughPortalPacket")
     private static void onTravelThroughPortal(Entity entity, CallbackInfo ci) {
         if (entity instanceof ServerPlayerEntity serverPlayer) {
-            String dimension = serverPlayer.getWorld().getRegistryKey().getValue().toString();
-            ServerEventHandler.reportEvent(serverPlayer, "dimension", dimension);
+            long start = TickProfiler.start();
+            try {
+                String dimension = serverPlayer.getWorld().getRegistryKey().getValue().toString();
+                ServerEventHandler.reportEvent(serverPlayer, "dimension", dimension);
+            } finally {
+                TickProfiler.end(TickProfiler.Section.DIMENSION_SWITCH, start);
+            }
         }
     }
 }
@@ -0,0 +1,36 @@
+package net.coolpixels.mixin;
+
+import net.coolpixels.ServerEventHandler;
+import net.coolpixels.TickProfiler;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(LivingEntity.class)
+public abstract class EntityKillMixin {
+    @Shadow
+    protected boolean dead;
+
+    @Inject(at = @At("HEAD"), method = "onDeath")
+    private void onEntityDeath(DamageSource damageSource, CallbackInfo ci) {
+        LivingEntity entity = (LivingEntity) (Object) this;
+        // onDeath returns early for entities that already died, so only count the first call
+        if (dead || entity.isRemoved())
+            return;
+        if (damageSource.getAttacker() instanceof ServerPlayerEntity killer) {
+            long start = TickProfiler.start();
+            try {
+                String entityId = EntityType.getId(entity.getType()).toString();
+                ServerEventHandler.reportEvent(killer, "kill", entityId);
+            } finally {
+                TickProfiler.end(TickProfiler.Section.ENTITY_KILL, start);
+            }
+        }
+    }
+}
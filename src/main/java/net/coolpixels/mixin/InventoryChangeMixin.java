@@ -0,0 +1,30 @@
+package net.coolpixels.mixin;
+
+import net.coolpixels.ServerEventHandler;
+import net.coolpixels.TickProfiler;
+import net.minecraft.advancement.criterion.InventoryChangedCriterion;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// The player's screen handler listener triggers this criterion for every changed slot of the player
+// inventory, whether the item was picked up, crafted, smelted, traded or taken from a chest
+@Mixin(InventoryChangedCriterion.class)
+public class InventoryChangeMixin {
+    @Inject(at = @At("HEAD"), method = "trigger(Lnet/minecraft/server/network/ServerPlayerEntity;Lnet/minecraft/entity/player/PlayerInventory;Lnet/minecraft/item/ItemStack;)V")
+    private void onInventoryChanged(ServerPlayerEntity player, PlayerInventory inventory, ItemStack stack,
+            CallbackInfo ci) {
+        if (!stack.isEmpty()) {
+            long start = TickProfiler.start();
+            try {
+                ServerEventHandler.reportItemObtained(player, stack.getItem());
+            } finally {
+                TickProfiler.end(TickProfiler.Section.INVENTORY_CHANGE, start);
+            }
+        }
+    }
+}
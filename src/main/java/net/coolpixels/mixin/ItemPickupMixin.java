@@ -1,8 +1,11 @@
 package net.coolpixels.mixin;
 
+import com.llamalad7.mixinextras.sugar.Local;
 import net.coolpixels.ServerEventHandler;
+import net.coolpixels.TickProfiler;
 import net.minecraft.entity.ItemEntity;
 import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.server.network.ServerPlayerEntity;
 import org.spongepowered.asm.mixin.Mixin;
@@ -12,13 +15,22 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 @Mixin(ItemEntity.class)
 public class ItemPickupMixin {
-    @Inject(at = @At("HEAD"), method = "onPlayerCollision")
-    private void onPlayerPickup(PlayerEntity player, CallbackInfo ci) {
+    // Runs only after the stack was actually inserted, so the picked up amount is known
+    @Inject(method = "onPlayerCollision", at = @At(value = "INVOKE",
+            target = "Lnet/minecraft/entity/player/PlayerEntity;sendPickup(Lnet/minecraft/entity/Entity;I)V"))
+    private void onPlayerPickup(PlayerEntity player, CallbackInfo ci, @Local Item item,
+            @Local(ordinal = 0) int originalCount) {
         if (player instanceof ServerPlayerEntity serverPlayer) {
-            ItemStack stack = ((ItemEntity) (Object) this).getStack();
-            if (!stack.isEmpty()) {
-                String itemId = stack.getItem().toString();
-                ServerEventHandler.reportEvent(serverPlayer, "item", itemId);
+            long start = TickProfiler.start();
+            try {
+                ItemStack remaining = ((ItemEntity) (Object) this).getStack();
+                int pickedUp = originalCount - remaining.getCount();
+                if (pickedUp > 0) {
+                    String itemId = item.toString();
+                    ServerEventHandler.reportEvent(serverPlayer, "item", itemId, pickedUp);
+                }
+            } finally {
+                TickProfiler.end(TickProfiler.Section.ITEM_PICKUP, start);
             }
         }
     }
@@ -0,0 +1,35 @@
+package net.coolpixels.mixin;
+
+import net.coolpixels.WorldIdentifierHolder;
+import net.minecraft.world.World;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+@Mixin(World.class)
+public class WorldMixin implements WorldIdentifierHolder {
+    @Unique
+    private String weeklyworld$identifier;
+
+    @Unique
+    private int weeklyworld$handle;
+
+    @Override
+    public String weeklyworld$getIdentifier() {
+        return weeklyworld$identifier;
+    }
+
+    @Override
+    public void weeklyworld$setIdentifier(String identifier) {
+        weeklyworld$identifier = identifier;
+    }
+
+    @Override
+    public int weeklyworld$getHandle() {
+        return weeklyworld$handle;
+    }
+
+    @Override
+    public void weeklyworld$setHandle(int handle) {
+        weeklyworld$handle = handle;
+    }
+}